@@ -0,0 +1,109 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+// Folds access events into the media counters and the registered listeners
+// on a background thread, so MediaLibrary.getMedia only has to publish.
+// Events for media that are no longer current (removed or replaced since the
+// event was published) are dropped here, so listeners never see them.
+class AccessAggregator implements AccessListener {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private AccessEventBuffer buffer = new AccessEventBuffer(BUFFER_SIZE);
+    private List<AccessListener> listeners = new CopyOnWriteArrayList<>();
+    private Predicate<Media> current;
+    private Thread worker;
+    // Set by stop; later accesses are dropped instead of filling the buffer
+    private volatile boolean closed;
+
+    public AccessAggregator() {
+        this(media -> true);
+    }
+
+    public AccessAggregator(Predicate<Media> current) {
+        this.current = current;
+    }
+
+    public synchronized void start() {
+        if (worker != null)
+            return;
+        worker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (drain() == 0)
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }, "access-aggregator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Stops the worker thread and applies what is still queued. Accesses
+    // published after this are not counted.
+    public void stop() {
+        closed = true;
+        Thread stopping;
+        synchronized (this) {
+            stopping = worker;
+            worker = null;
+        }
+        if (stopping != null) {
+            stopping.interrupt();
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public void publish(Media media, Student student, long timestamp) {
+        if (closed)
+            return;
+        buffer.publish(media, student, timestamp);
+    }
+
+    public void addListener(AccessListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(AccessListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Applies every event published before the call. Events
+    // published meanwhile are left to the worker, so a steady stream of
+    // accesses cannot keep the caller here.
+    public void flush() {
+        long target = buffer.getClaimed();
+        while (buffer.getConsumed() < target) {
+            // A claimed slot whose event is not written yet
+            if (drain() == 0)
+                Thread.onSpinWait();
+        }
+    }
+
+    // A listener that throws loses that one event; the error is logged so
+    // the worker thread keeps running
+    private synchronized int drain() {
+        try {
+            return buffer.drain(this, BATCH_SIZE);
+        } catch (RuntimeException e) {
+            System.out.println("Access event dropped: " + e);
+            return 1;
+        }
+    }
+
+    @Override
+    public void onAccess(Media media, Student student, long timestamp) {
+        if (!current.test(media))
+            return;
+        media.incrementAccessCount();
+        for (AccessListener listener : listeners)
+            listener.onAccess(media, student, timestamp);
+    }
+}
\ No newline at end of file
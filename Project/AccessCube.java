@@ -0,0 +1,221 @@
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// OLAP-style cube of access events. Events are pre-aggregated into a set
+// of cuboids, each one a group-by over a subset of the dimensions, so a
+// query rolls up the smallest cuboid that covers it instead of scanning
+// raw events. A media with several subjects counts once per subject in
+// cuboids that include SUBJECT, and once per specialty in those that
+// include SPECIALTY; a media without subjects counts under "None". Such a
+// cuboid only answers queries that group or filter on those dimensions, so
+// other roll-ups count every access exactly once.
+//
+// Time cells are kept for RETENTION, the window TrendingStatistics keeps
+// daily counts for; older ones are dropped as time moves on. Cuboids
+// without TIME hold lifetime totals and are never trimmed.
+class AccessCube implements AccessListener {
+    static final long RETENTION = 90 * TrendingStatistics.DAY;
+
+    public enum Dimension {
+        SPECIALTY, SUBJECT, TYPE, YEAR, TIME
+    }
+
+    public enum TimeGranularity {
+        HOUR, DAY, MONTH
+    }
+
+    // Member for media without a subject or subjects without a specialty
+    public static final String NONE = "None";
+
+    private TimeGranularity granularity;
+    private List<Cuboid> cuboids = new ArrayList<>();
+    // Latest bucket seen; cells are trimmed when it moves
+    private long latest = Long.MIN_VALUE;
+
+    public AccessCube(TimeGranularity granularity) {
+        this(granularity, Arrays.asList(
+                EnumSet.of(Dimension.TYPE, Dimension.TIME),
+                EnumSet.of(Dimension.TYPE, Dimension.YEAR, Dimension.TIME),
+                EnumSet.of(Dimension.SPECIALTY, Dimension.TIME),
+                EnumSet.of(Dimension.SUBJECT, Dimension.TIME),
+                EnumSet.of(Dimension.SPECIALTY, Dimension.TYPE, Dimension.YEAR, Dimension.TIME),
+                EnumSet.allOf(Dimension.class)));
+    }
+
+    public AccessCube(TimeGranularity granularity, List<? extends Set<Dimension>> views) {
+        this.granularity = granularity;
+        for (Set<Dimension> dimensions : views)
+            cuboids.add(new Cuboid(EnumSet.copyOf(dimensions)));
+        // Smallest first, so queries pick the cheapest covering cuboid
+        cuboids.sort(Comparator.comparingInt(c -> c.dimensions.size()));
+    }
+
+    @Override
+    public synchronized void onAccess(Media media, Student student, long timestamp) {
+        long bucket = bucket(timestamp);
+        if (bucket > latest) {
+            latest = bucket;
+            long cutoff = bucket(timestamp - RETENTION);
+            for (Cuboid cuboid : cuboids)
+                cuboid.expire(cutoff);
+        } else if (bucket < bucket(latest - RETENTION)) {
+            return;
+        }
+        Set<Subject> subjects = media.getSubjectsView();
+        for (Cuboid cuboid : cuboids)
+            cuboid.record(media, subjects, bucket);
+    }
+
+    // Counts grouped by the groupBy dimensions (keys in Dimension order),
+    // restricted to the filter values and to buckets in [from, to).
+    // Use Long.MIN_VALUE / Long.MAX_VALUE for an open time range.
+    public synchronized Map<List<Object>, Long> query(Set<Dimension> groupBy, Map<Dimension, Object> filter,
+            long from, long to) {
+        EnumSet<Dimension> needed = groupBy.isEmpty() ? EnumSet.noneOf(Dimension.class) : EnumSet.copyOf(groupBy);
+        needed.addAll(filter.keySet());
+        boolean timeRange = from != Long.MIN_VALUE || to != Long.MAX_VALUE;
+        if (timeRange)
+            needed.add(Dimension.TIME);
+
+        Cuboid source = null;
+        for (Cuboid cuboid : cuboids) {
+            if (cuboid.dimensions.containsAll(needed) && exact(cuboid.dimensions, needed)) {
+                source = cuboid;
+                break;
+            }
+        }
+        if (source == null)
+            throw new IllegalArgumentException("No pre-aggregated view covers " + needed);
+
+        List<Dimension> sourceDims = new ArrayList<>(source.dimensions);
+        List<Dimension> groupDims = new ArrayList<>(needed);
+        groupDims.retainAll(groupBy);
+        Map<List<Object>, Long> result = new HashMap<>();
+        for (Map.Entry<List<Object>, long[]> cell : source.cells.entrySet()) {
+            List<Object> key = cell.getKey();
+            if (!matches(key, sourceDims, filter))
+                continue;
+            if (timeRange) {
+                long time = (Long) key.get(sourceDims.indexOf(Dimension.TIME));
+                if (time < from || time >= to)
+                    continue;
+            }
+            List<Object> group = new ArrayList<>(groupDims.size());
+            for (Dimension d : groupDims)
+                group.add(key.get(sourceDims.indexOf(d)));
+            result.merge(group, cell.getValue()[0], Long::sum);
+        }
+
+        List<Map.Entry<List<Object>, Long>> sorted = new ArrayList<>(result.entrySet());
+        sorted.sort((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
+        Map<List<Object>, Long> ordered = new LinkedHashMap<>();
+        for (Map.Entry<List<Object>, Long> entry : sorted)
+            ordered.put(entry.getKey(), entry.getValue());
+        return ordered;
+    }
+
+    public Map<List<Object>, Long> query(Set<Dimension> groupBy, Map<Dimension, Object> filter) {
+        return query(groupBy, filter, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Start of the time bucket containing timestamp, in epoch milliseconds (UTC)
+    public long bucket(long timestamp) {
+        ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC);
+        switch (granularity) {
+            case HOUR:
+                time = time.truncatedTo(ChronoUnit.HOURS);
+                break;
+            case DAY:
+                time = time.truncatedTo(ChronoUnit.DAYS);
+                break;
+            default:
+                time = time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+                break;
+        }
+        return time.toInstant().toEpochMilli();
+    }
+
+    // Subject cells split a media's accesses per subject, specialty cells per
+    // specialty; specialty is a function of the subject, so subject cells
+    // also answer specialty queries exactly
+    private static boolean exact(Set<Dimension> dimensions, Set<Dimension> needed) {
+        if (dimensions.contains(Dimension.SUBJECT) && !needed.contains(Dimension.SUBJECT))
+            return false;
+        return !dimensions.contains(Dimension.SPECIALTY) || needed.contains(Dimension.SPECIALTY)
+                || needed.contains(Dimension.SUBJECT);
+    }
+
+    private static boolean matches(List<Object> key, List<Dimension> dims, Map<Dimension, Object> filter) {
+        for (Map.Entry<Dimension, Object> f : filter.entrySet()) {
+            if (!f.getValue().equals(key.get(dims.indexOf(f.getKey()))))
+                return false;
+        }
+        return true;
+    }
+
+    private static class Cuboid {
+        final EnumSet<Dimension> dimensions;
+        final Map<List<Object>, long[]> cells = new HashMap<>();
+        // Position of the bucket in the keys, -1 without TIME
+        final int timeIndex;
+
+        Cuboid(EnumSet<Dimension> dimensions) {
+            this.dimensions = dimensions;
+            this.timeIndex = new ArrayList<>(dimensions).indexOf(Dimension.TIME);
+        }
+
+        // Drops the cells of buckets before cutoff
+        void expire(long cutoff) {
+            if (timeIndex >= 0)
+                cells.keySet().removeIf(key -> (Long) key.get(timeIndex) < cutoff);
+        }
+
+        void record(Media media, Set<Subject> subjects, long bucket) {
+            boolean bySubject = dimensions.contains(Dimension.SUBJECT);
+            boolean bySpecialty = dimensions.contains(Dimension.SPECIALTY);
+            if (!bySubject && !bySpecialty) {
+                add(media, null, null, bucket);
+            } else if (subjects.isEmpty()) {
+                add(media, null, NONE, bucket);
+            } else if (bySubject) {
+                for (Subject subject : subjects)
+                    add(media, subject, specialtyName(subject), bucket);
+            } else {
+                Set<String> specialties = new HashSet<>();
+                for (Subject subject : subjects)
+                    specialties.add(specialtyName(subject));
+                for (String specialty : specialties)
+                    add(media, null, specialty, bucket);
+            }
+        }
+
+        private void add(Media media, Subject subject, String specialty, long bucket) {
+            List<Object> key = new ArrayList<>(dimensions.size());
+            for (Dimension d : dimensions) {
+                switch (d) {
+                    case SPECIALTY:
+                        key.add(specialty);
+                        break;
+                    case SUBJECT:
+                        key.add(subject == null ? NONE : subject.getCode());
+                        break;
+                    case TYPE:
+                        key.add(media.getType());
+                        break;
+                    case YEAR:
+                        key.add(media.getPublicationYear());
+                        break;
+                    default:
+                        key.add(bucket);
+                        break;
+                }
+            }
+            cells.computeIfAbsent(key, k -> new long[1])[0]++;
+        }
+
+        private static String specialtyName(Subject subject) {
+            return subject.getSpecialty() == null ? NONE : subject.getSpecialty().getName();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free multi-producer / single-consumer ring buffer of access events.
+// Events are stored in parallel arrays so publishing allocates nothing.
+class AccessEventBuffer {
+    private final int capacity;
+    private final int mask;
+    private final Media[] media;
+    private final Student[] students;
+    private final long[] timestamps;
+    // Sequence number written into each slot once its event is visible
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    public AccessEventBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.media = new Media[capacity];
+        this.students = new Student[capacity];
+        this.timestamps = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            published.set(i, -1);
+    }
+
+    public void publish(Media m, Student s, long timestamp) {
+        long seq = claimed.getAndIncrement();
+        // Buffer full: wait for the consumer to free the slot
+        while (seq - consumed >= capacity)
+            Thread.onSpinWait();
+        int slot = (int) seq & mask;
+        media[slot] = m;
+        students[slot] = s;
+        timestamps[slot] = timestamp;
+        published.set(slot, seq);
+    }
+
+    // Must only be called by one thread at a time
+    public int drain(AccessListener sink, int max) {
+        long next = consumed;
+        int count = 0;
+        while (count < max) {
+            int slot = (int) next & mask;
+            if (published.get(slot) != next)
+                break;
+            Media m = media[slot];
+            Student s = students[slot];
+            long timestamp = timestamps[slot];
+            media[slot] = null;
+            students[slot] = null;
+            consumed = ++next;
+            sink.onAccess(m, s, timestamp);
+            count++;
+        }
+        return count;
+    }
+
+    // Sequence the next published event will get
+    public long getClaimed() {
+        return claimed.get();
+    }
+
+    public long getConsumed() {
+        return consumed;
+    }
+
+    public int size() {
+        return (int) (claimed.get() - consumed);
+    }
+}
\ No newline at end of file
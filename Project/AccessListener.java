@@ -0,0 +1,4 @@
+interface AccessListener {
+    // student is null when the media was opened outside a student session
+    void onAccess(Media media, Student student, long timestamp);
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+import java.io.Serializable;
+import java.util.List;
+
+// Approximate access statistics in fixed memory, next to the exact counters:
+// frequency sketches for media, (media, student) and (media, day) keys and
+// Space-Saving summaries for the heaviest media and (media, student) pairs.
+// Sketches built on different threads or shards can be merged.
+class AccessSketches implements AccessListener, Serializable {
+    private static final long serialVersionUID = 1L;
+    // epsilon = 0.1%, delta = 0.1%: about 2700 x 7 counters per sketch
+    private static final double EPSILON = 0.001;
+    private static final double DELTA = 0.001;
+    private static final int TOP_CAPACITY = 1000;
+
+    private CountMinSketch mediaFrequencies = new CountMinSketch(EPSILON, DELTA);
+    private CountMinSketch studentFrequencies = new CountMinSketch(EPSILON, DELTA);
+    private CountMinSketch dailyFrequencies = new CountMinSketch(EPSILON, DELTA);
+    private SpaceSavingTopK<String> topMedia = new SpaceSavingTopK<>(TOP_CAPACITY);
+    private SpaceSavingTopK<String> topStudentMedia = new SpaceSavingTopK<>(TOP_CAPACITY);
+
+    @Override
+    public synchronized void onAccess(Media media, Student student, long timestamp) {
+        long mediaKey = hash(media.getId());
+        mediaFrequencies.add(mediaKey, 1);
+        dailyFrequencies.add(combine(mediaKey, timestamp / TrendingStatistics.DAY), 1);
+        topMedia.add(media.getId());
+        if (student != null) {
+            studentFrequencies.add(combine(mediaKey, hash(student.getUsername())), 1);
+            topStudentMedia.add(media.getId() + "|" + student.getUsername());
+        }
+    }
+
+    public synchronized long estimateAccesses(Media media) {
+        return mediaFrequencies.estimate(hash(media.getId()));
+    }
+
+    public synchronized long estimateAccesses(Media media, Student student) {
+        return studentFrequencies.estimate(combine(hash(media.getId()), hash(student.getUsername())));
+    }
+
+    public synchronized long estimateAccessesOnDay(Media media, long timestamp) {
+        return dailyFrequencies.estimate(combine(hash(media.getId()), timestamp / TrendingStatistics.DAY));
+    }
+
+    // Media ids, most accessed first
+    public synchronized List<String> getTopMedia(int limit) {
+        return topMedia.top(limit);
+    }
+
+    // "mediaId|username" keys, most frequent first
+    public synchronized List<String> getTopStudentMedia(int limit) {
+        return topStudentMedia.top(limit);
+    }
+
+    public synchronized long getTopMediaCount(String mediaId) {
+        return topMedia.estimate(mediaId);
+    }
+
+    public synchronized long getTopStudentMediaCount(String key) {
+        return topStudentMedia.estimate(key);
+    }
+
+    // Maximum overcount of the frequency estimates (with probability 1 - DELTA)
+    public synchronized long getErrorBound() {
+        return mediaFrequencies.getErrorBound();
+    }
+
+    // Maximum overcount of the Space-Saving counts
+    public synchronized long getTopErrorBound() {
+        return topMedia.getTotal() / TOP_CAPACITY;
+    }
+
+    public synchronized void merge(AccessSketches other) {
+        synchronized (other) {
+            mediaFrequencies.merge(other.mediaFrequencies);
+            studentFrequencies.merge(other.studentFrequencies);
+            dailyFrequencies.merge(other.dailyFrequencies);
+            topMedia.merge(other.topMedia);
+            topStudentMedia.merge(other.topStudentMedia);
+        }
+    }
+
+    // 64-bit FNV-1a, avoids the collisions of String.hashCode
+    static long hash(String s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    private static long combine(long h1, long h2) {
+        return h1 * 31 + h2;
+    }
+}
\ No newline at end of file
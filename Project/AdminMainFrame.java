@@ -1,17 +1,27 @@
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import javax.swing.*;
 import javax.swing.table.*;
 
 class AdminMainFrame extends JFrame {
+    private static final int PARALLEL_EXPORT_THRESHOLD = 50000;
+    // Large exports leave disk bandwidth to interactive use
+    private static final long LARGE_EXPORT_BYTES_PER_SECOND = 32L << 20;
+
     private MediaLibrary library;
     private JTable mediaTable;
     private DefaultTableModel tableModel;
     private JButton addStudentBtn;
+    private ReportEngine reportEngine;
+    private ExportJobService exportJobs = new ExportJobService();
+    // Progress timers of running exports, stopped on logout
+    private List<javax.swing.Timer> exportTimers = new ArrayList<>();
 
     public AdminMainFrame(MediaLibrary lib) {
         this.library = lib;
+        this.reportEngine = new ReportEngine(lib);
 
         setTitle("Media Library - Admin Panel");
         setSize(1100, 650);
@@ -30,6 +40,7 @@ class AdminMainFrame extends JFrame {
         
         JButton exportXmlBtn = new JButton("Export Media XML");
         JButton exportCsvBtn = new JButton("Export Media CSV");
+        JButton importBtn = new JButton("Import Media");
         JButton statsBtn = new JButton("Media Stats");
         JButton studentStatsBtn = new JButton("Student Stats");
         
@@ -50,6 +61,7 @@ class AdminMainFrame extends JFrame {
         controlPanel.add(loadXmlBtn);
         controlPanel.add(exportXmlBtn);
         controlPanel.add(exportCsvBtn);
+        controlPanel.add(importBtn);
         controlPanel.add(statsBtn);
         controlPanel.add(studentStatsBtn);
         
@@ -88,6 +100,7 @@ class AdminMainFrame extends JFrame {
         loadXmlBtn.addActionListener(e -> loadFromXML());
         exportXmlBtn.addActionListener(e -> exportMedia("XML"));
         exportCsvBtn.addActionListener(e -> exportMedia("CSV"));
+        importBtn.addActionListener(e -> importMedia());
         statsBtn.addActionListener(e -> showStatistics());
         studentStatsBtn.addActionListener(e -> showStudentStatistics());
         saveBtn.addActionListener(e -> saveBinary());
@@ -96,6 +109,12 @@ class AdminMainFrame extends JFrame {
         viewAdminsBtn.addActionListener(e -> showAdminsList());
         addAdminBtn.addActionListener(e -> showAddAdminDialog());
         logoutBtn.addActionListener(e -> {
+            reportEngine.shutdown();
+            // Running exports finish in the background, without their dialogs
+            for (javax.swing.Timer timer : exportTimers)
+                timer.stop();
+            exportTimers.clear();
+            exportJobs.shutdown();
             dispose();
             new AdminLoginFrame(library).setVisible(true);
         });
@@ -291,15 +310,12 @@ class AdminMainFrame extends JFrame {
             }
             
             // Vérifier si l'email existe déjà
-            if (library.getAllAdministrators().stream().anyMatch(a -> a.getUsername().equals(email)) ||
-                library.getAllStudents().stream().anyMatch(s -> s.getUsername().equals(email))) {
+            Administrator admin = new Administrator(email, password, nom, prenom, email);
+            if (!library.registerAdministrator(admin)) {
                 JOptionPane.showMessageDialog(dialog, "Email already exists", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
             
-            Administrator admin = new Administrator(email, password, nom, prenom, email);
-            library.addAdministrator(admin);
-            
             try {
                 library.saveAllDataToXML();
                 JOptionPane.showMessageDialog(dialog, 
@@ -386,25 +402,16 @@ class AdminMainFrame extends JFrame {
         StringBuilder stats = new StringBuilder();
         stats.append("=== STUDENT STATISTICS ===\n\n");
         
-        List<Student> students = library.getAllStudents();
-        stats.append("Total Students: ").append(students.size()).append("\n\n");
-        
-        // Group by specialty
-        Map<String, Integer> specialtyCount = new HashMap<>();
-        for (Student student : students) {
-            String specialty = student.getSpecialty().getName();
-            specialtyCount.put(specialty, specialtyCount.getOrDefault(specialty, 0) + 1);
-        }
+        LibraryAggregates.Snapshot aggregates = library.getAggregates();
+        stats.append("Total Students: ").append(aggregates.getStudentCount()).append("\n\n");
         
         stats.append("Students by Specialty:\n");
-        for (Map.Entry<String, Integer> entry : specialtyCount.entrySet()) {
+        for (Map.Entry<String, Integer> entry : aggregates.getStudentsBySpecialty().entrySet()) {
             stats.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
         }
         
         stats.append("\nRecent Students (last 10):\n");
-        int count = Math.min(10, students.size());
-        for (int i = 0; i < count; i++) {
-            Student s = students.get(i);
+        for (Student s : library.getStudents(10)) {
             stats.append(String.format("  %s %s (%s) - %s\n", 
                 s.getNom(), s.getPrenom(), s.getUsername(), s.getSpecialty().getName()));
         }
@@ -608,18 +615,93 @@ class AdminMainFrame extends JFrame {
         chooser.setDialogTitle("Export to " + format);
 
         if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            ChunkedExporter chunked;
+            if ("XML".equals(format)) {
+                chunked = new XMLExporter();
+            } else {
+                chunked = new CSVExporter();
+            }
+            // Large catalogs are formatted on all cores but written at a limited rate
+            boolean large = library.getAggregates().getMediaCount() > PARALLEL_EXPORT_THRESHOLD;
+            Exporter exporter = large ? new ParallelExporter(chunked) : chunked;
+            ExportJobService.ExportJob job = exportJobs.submit(library, exporter, null,
+                    chooser.getSelectedFile().getAbsolutePath(), large ? LARGE_EXPORT_BYTES_PER_SECOND : 0);
+            showExportProgress(job);
+        }
+    }
+
+    // Non-modal, the frame stays usable while the export runs
+    private void showExportProgress(ExportJobService.ExportJob job) {
+        JDialog dialog = new JDialog(this, "Exporting", false);
+        dialog.setSize(360, 130);
+        dialog.setLayout(new BorderLayout(5, 5));
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+
+        JLabel progressLabel = new JLabel("Preparing export...");
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        JButton cancelBtn = new JButton("Cancel");
+
+        dialog.add(progressLabel, BorderLayout.NORTH);
+        dialog.add(progressBar, BorderLayout.CENTER);
+        dialog.add(cancelBtn, BorderLayout.SOUTH);
+
+        javax.swing.Timer timer = new javax.swing.Timer(200, null);
+        timer.addActionListener(e -> {
+            int total = job.getTotalRows();
+            if (total >= 0) {
+                progressBar.setMaximum(Math.max(1, total));
+                progressBar.setValue((int) Math.min(total, job.getRowsWritten()));
+                progressLabel.setText(job.getRowsWritten() + " / " + total + " rows, "
+                        + job.getBytesWritten() / 1024 + " KB written");
+            } else if (job.getRowsWritten() > 0) {
+                progressBar.setIndeterminate(true);
+                progressLabel.setText(job.getRowsWritten() + " rows, "
+                        + job.getBytesWritten() / 1024 + " KB written");
+            }
+            if (!job.isDone())
+                return;
+            timer.stop();
+            exportTimers.remove(timer);
+            dialog.dispose();
             try {
-                Exporter exporter;
-                if ("XML".equals(format)) {
-                    exporter = new XMLExporter();
-                } else {
-                    exporter = new CSVExporter();
-                }
-                exporter.export(library.getAllMedia(), chooser.getSelectedFile().getAbsolutePath());
+                job.get();
                 JOptionPane.showMessageDialog(this, "Export completed");
+            } catch (CancellationException ex) {
+                JOptionPane.showMessageDialog(this, "Export cancelled");
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Export failed: " + ex.getMessage());
             }
+        });
+        cancelBtn.addActionListener(e -> job.cancel());
+
+        exportTimers.add(timer);
+        timer.start();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    // Reads a CSV or XML export back; the format follows the file extension
+    private void importMedia() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import media (CSV or XML)");
+
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                String path = chooser.getSelectedFile().getAbsolutePath();
+                String name = path.toLowerCase().replaceFirst("\\.gz$", "");
+                Importer importer = name.endsWith(".xml") ? new XMLImporter() : new CSVImporter();
+                List<Media> imported = importer.importMedia(path, library);
+                // Existing media keep their details and descriptions
+                List<Media> skipped = library.addAllNewMedia(imported);
+                loadMediaData();
+                String message = (imported.size() - skipped.size()) + " media imported";
+                if (!skipped.isEmpty())
+                    message += "\n" + skipped.size() + " skipped, their id is already in the library";
+                JOptionPane.showMessageDialog(this, message);
+            } catch (Exception ex) {
+                JOptionPane.showMessageDialog(this, "Import failed: " + ex.getMessage());
+            }
         }
     }
 
@@ -633,7 +715,8 @@ class AdminMainFrame extends JFrame {
         
         StringBuilder stats = new StringBuilder();
         stats.append("=== MEDIA STATISTICS ===\n\n");
-        stats.append("Total media: ").append(library.getAllMedia().size()).append("\n");
+        LibraryAggregates.Snapshot aggregates = library.getAggregates();
+        stats.append("Total media: ").append(aggregates.getMediaCount()).append("\n");
 
         stats.append("\nTop 5 most accessed:\n");
         List<Media> top = library.getMostAccessedMedia(5);
@@ -643,19 +726,52 @@ class AdminMainFrame extends JFrame {
                     i + 1, m.getTitle(), m.getId(), m.getAccessCount()));
         }
         
-        // Media by type
-        Map<String, Integer> typeCount = new HashMap<>();
-        for (Media media : library.getAllMedia()) {
-            String type = media.getType();
-            typeCount.put(type, typeCount.getOrDefault(type, 0) + 1);
+        stats.append("\nTrending this week:\n");
+        List<Media> trending = library.getTrendingMedia(7 * TrendingStatistics.DAY, 5);
+        for (int i = 0; i < trending.size(); i++) {
+            Media m = trending.get(i);
+            stats.append(String.format("%d. %s (%s) - %d accesses%n",
+                    i + 1, m.getTitle(), m.getId(), library.getRecentAccessCount(m, 7 * TrendingStatistics.DAY)));
         }
         
         stats.append("\nMedia by type:\n");
-        for (Map.Entry<String, Integer> entry : typeCount.entrySet()) {
+        for (Map.Entry<String, Integer> entry : aggregates.getMediaByType().entrySet()) {
+            stats.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        }
+
+        stats.append("\nAccesses by type:\n");
+        for (Map.Entry<String, Long> entry : library.getAccessCountsByType().entrySet()) {
             stats.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
         }
 
+        // One report per specialty, computed in parallel and cached between opens
+        List<StatisticsReport> reports = new ArrayList<>();
+        for (Specialty specialty : library.getAllSpecialties()) {
+            reports.add(new MostAccessedBySpecialtyReport(specialty.getName()));
+        }
+        try {
+            ReportEngine.Results results = reportEngine.generateAll(reports);
+            for (String report : results.values()) {
+                stats.append("\n").append(report);
+            }
+            if (!results.isConsistent())
+                stats.append("\nThe library changed while the reports ran; they may not match each other.\n");
+        } catch (Exception ex) {
+            stats.append("\nSpecialty reports failed: ").append(ex.getMessage()).append("\n");
+        }
+
         statsArea.setText(stats.toString());
+
+        // Streamed straight into the text area
+        TextAreaAppender appender = new TextAreaAppender(statsArea);
+        try {
+            appender.append("\n");
+            new HeavyHittersReport(5).writeReport(library, appender);
+        } catch (Exception ex) {
+            statsArea.append("\nApproximate statistics failed: " + ex.getMessage() + "\n");
+        }
+        appender.flush();
+
         dialog.add(scroll);
         dialog.setVisible(true);
     }
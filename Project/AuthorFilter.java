@@ -9,4 +9,9 @@ class AuthorFilter implements FilterCriteria {
     public boolean matches(Media media) {
         return media.getAuthor().toLowerCase().contains(author);
     }
+
+    @Override
+    public boolean matches(MediaStore.Cursor row) {
+        return MediaStore.containsIgnoreCase(row.getAuthor(), author);
+    }
 }
\ No newline at end of file
@@ -1,28 +1,138 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// RFC 4180 CSV: string fields are quoted with embedded quotes doubled,
+// records end with CRLF. Rows are formatted into one reused buffer and
+// written through a large buffered writer, optionally gzipped.
+class CSVExporter implements ChunkedExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    static final String HEADER = "ID,Title,Author,Year,Type,AccessCount,Subjects";
+    // Delta rows start with U (added or changed) or D (removed, only the ID is set)
+    static final String CHANGES_HEADER = "Change," + HEADER;
+
+    private boolean gzip;
+    private StringBuilder row = new StringBuilder(256);
+    private char[] chars = new char[256];
+
+    public CSVExporter() {
+        this(false);
+    }
+
+    // Also compresses whenever the target file name ends with .gz
+    public CSVExporter(boolean gzip) {
+        this.gzip = gzip;
+    }
 
-class CSVExporter implements Exporter {
     @Override
     public void export(List<Media> mediaList, String filePath) throws Exception {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            writer.println("ID,Title,Author,Year,Type,AccessCount,Subjects");
-            for (Media media : mediaList) {
-                String subjects = "";
-                for (Subject subject : media.getSubjects()) {
-                    subjects += subject.getCode() + ";";
-                }
-                if (!subjects.isEmpty())
-                    subjects = subjects.substring(0, subjects.length() - 1);
-
-                writer.printf("\"%s\",\"%s\",\"%s\",%d,\"%s\",%d,\"%s\"%n",
-                        media.getId(),
-                        media.getTitle(),
-                        media.getAuthor(),
-                        media.getPublicationYear(),
-                        media.getType(),
-                        media.getAccessCount(),
-                        subjects);
-            }
+        OutputStream out = Files.newOutputStream(Paths.get(filePath));
+        if (gzip || filePath.endsWith(".gz"))
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        try (OutputStream target = out) {
+            export(mediaList.iterator(), target);
+        }
+    }
+
+    @Override
+    public void export(Iterator<Media> media, OutputStream out) throws Exception {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(HEADER);
+        writer.write("\r\n");
+        while (media.hasNext())
+            writeRow(writer, media.next());
+        writer.flush();
+    }
+
+    @Override
+    public void exportChanges(Iterator<Media> changed, Collection<String> removedIds, OutputStream out)
+            throws Exception {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(CHANGES_HEADER);
+        writer.write("\r\n");
+        while (changed.hasNext())
+            writeRow(writer, "\"U\",", changed.next());
+        for (String id : removedIds) {
+            row.setLength(0);
+            row.append("\"D\",");
+            appendQuoted(row, id);
+            row.append(",,,,,,\r\n");
+            writer.append(row);
+        }
+        writer.flush();
+    }
+
+    private void writeRow(Writer writer, Media media) throws IOException {
+        writeRow(writer, "", media);
+    }
+
+    private void writeRow(Writer writer, String prefix, Media media) throws IOException {
+        row.setLength(0);
+        row.append(prefix);
+        appendRow(row, media);
+        int length = row.length();
+        if (chars.length < length)
+            chars = new char[Math.max(length, chars.length * 2)];
+        row.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    @Override
+    public byte[] header() {
+        return (HEADER + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] formatChunk(List<Media> chunk) {
+        StringBuilder sb = new StringBuilder(chunk.size() * 96);
+        for (Media media : chunk)
+            appendRow(sb, media);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] footer() {
+        return new byte[0];
+    }
+
+    private static void appendRow(StringBuilder row, Media media) {
+        appendQuoted(row, media.getId());
+        row.append(',');
+        appendQuoted(row, media.getTitle());
+        row.append(',');
+        appendQuoted(row, media.getAuthor());
+        row.append(',').append(media.getPublicationYear()).append(',');
+        appendQuoted(row, media.getType());
+        row.append(',').append(media.getAccessCount()).append(",\"");
+        boolean first = true;
+        for (Subject subject : media.getSubjectsView()) {
+            if (!first)
+                row.append(';');
+            appendEscaped(row, subject.getCode());
+            first = false;
+        }
+        row.append("\"\r\n");
+    }
+
+    private static void appendQuoted(StringBuilder row, String value) {
+        row.append('"');
+        appendEscaped(row, value);
+        row.append('"');
+    }
+
+    private static void appendEscaped(StringBuilder row, String value) {
+        if (value == null)
+            return;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"')
+                row.append('"');
+            row.append(c);
         }
     }
 }
\ No newline at end of file
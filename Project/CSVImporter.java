@@ -0,0 +1,135 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Reads back the RFC 4180 files written by CSVExporter. The file is mapped,
+// cut into chunks at record boundaries outside quotes, and the chunks are
+// copied and parsed in parallel. The CSV format is lossy: it has no
+// description or type specific columns, so imported media get an empty
+// description and default details (see Importer.createMedia). Use the XML
+// export to keep descriptions.
+class CSVImporter implements Importer {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int FIELD_COUNT = 7;
+
+    private ForkJoinPool pool;
+
+    public CSVImporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public CSVImporter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<Media> importMedia(String filePath, MediaLibrary library) throws Exception {
+        ByteBuffer data = Importer.mapFile(filePath);
+        Map<String, Subject> subjects = Importer.subjectsByCode(library);
+        int[] bounds = split(data);
+        List<List<Media>> parsed = Importer.parseOn(pool, () -> IntStream.range(0, bounds.length - 1).parallel()
+                .mapToObj(i -> parse(data, bounds[i], bounds[i + 1], subjects))
+                .collect(Collectors.toList()));
+
+        List<Media> result = new ArrayList<>();
+        for (List<Media> chunk : parsed)
+            result.addAll(chunk);
+        return result;
+    }
+
+    // Chunk start offsets, the header line excluded, plus the end of the data
+    private int[] split(ByteBuffer data) {
+        int length = data.limit();
+        int target = length / Importer.chunkCount(length, pool, MIN_CHUNK_BYTES);
+        List<Integer> bounds = new ArrayList<>();
+        boolean quoted = false;
+        int next = -1;
+        for (int i = 0; i < length; i++) {
+            byte b = data.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                // The first boundary skips the header line
+                if (next < 0 || i + 1 >= next) {
+                    bounds.add(i + 1);
+                    next = i + 1 + target;
+                }
+            }
+        }
+        if (bounds.isEmpty())
+            bounds.add(length);
+        if (bounds.get(bounds.size() - 1) != length)
+            bounds.add(length);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private List<Media> parse(ByteBuffer data, int from, int to, Map<String, Subject> subjects) {
+        byte[] chunk = new byte[to - from];
+        data.get(from, chunk);
+        String text = new String(chunk, StandardCharsets.UTF_8);
+        List<Media> result = new ArrayList<>();
+        List<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder(64);
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                fields.add(field.toString());
+                field.setLength(0);
+                addRecord(result, fields, subjects);
+                fields.clear();
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (field.length() > 0 || !fields.isEmpty()) {
+            fields.add(field.toString());
+            addRecord(result, fields, subjects);
+        }
+        return result;
+    }
+
+    private void addRecord(List<Media> result, List<String> fields, Map<String, Subject> subjects) {
+        if (fields.size() == 1 && fields.get(0).isEmpty())
+            return;
+        if (fields.size() != FIELD_COUNT)
+            throw new IllegalArgumentException("Malformed CSV record: " + fields);
+        try {
+            Media media = Importer.createMedia(fields.get(4), fields.get(0), fields.get(1), fields.get(2),
+                    Integer.parseInt(fields.get(3)), "", Integer.parseInt(fields.get(5)));
+            String codes = fields.get(6);
+            int start = 0;
+            while (start < codes.length()) {
+                int end = codes.indexOf(';', start);
+                if (end < 0)
+                    end = codes.length();
+                Subject subject = subjects.get(codes.substring(start, end));
+                if (subject != null)
+                    media.addSubject(subject);
+                start = end + 1;
+            }
+            result.add(media);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed CSV record: " + fields);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+// Media change sequence numbers for delta exports. Every media change (add,
+// replace, subject change, access) takes the next sequence number and stamps
+// it on the media; removals leave a tombstone with their sequence. Numbering
+// and stamping happen under this monitor, so a reader that takes
+// getSequence() before scanning cannot miss a change at or below it.
+// Saved with the library's binary data and with its usage data beside
+// universite.xml, so numbers keep increasing across restarts.
+class ChangeLog implements AccessListener, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long sequence;
+    private Map<String, Long> tombstones = new HashMap<>();
+    // {sequence, fingerprint} by id of media saved with the usage data and
+    // not back yet; a media that comes back unchanged keeps its old stamp
+    private transient Map<String, long[]> savedStamps;
+
+    // Unlike record, an access never clears a tombstone: an event queued
+    // before a removal must not bring the media back into deltas
+    @Override
+    public synchronized void onAccess(Media media, Student student, long timestamp) {
+        if (tombstones.containsKey(media.getId()))
+            return;
+        sequence++;
+        media.setChangeSequence(sequence);
+    }
+
+    public synchronized long record(Media media) {
+        tombstones.remove(media.getId());
+        if (claim(media))
+            return media.getChangeSequence();
+        sequence++;
+        media.setChangeSequence(sequence);
+        return sequence;
+    }
+
+    private boolean claim(Media media) {
+        if (savedStamps == null)
+            return false;
+        long[] stamp = savedStamps.remove(media.getId());
+        if (stamp == null || stamp[1] != fingerprint(media))
+            return false;
+        media.setChangeSequence(stamp[0]);
+        return true;
+    }
+
+    public synchronized long recordRemoval(Media media) {
+        sequence++;
+        tombstones.put(media.getId(), sequence);
+        return sequence;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // Ids removed after since
+    public synchronized List<String> getRemovedSince(long since) {
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Long> e : tombstones.entrySet())
+            if (e.getValue() > since)
+                removed.add(e.getKey());
+        return removed;
+    }
+
+    // Media are saved separately and may carry newer stamps than the log
+    public synchronized void advanceTo(long seen) {
+        sequence = Math.max(sequence, seen);
+    }
+
+    // Continues the numbering of a saved log and keeps its removals of ids
+    // that are not back in the library. Media saved with stamps keep them if
+    // they are, or come back, unchanged.
+    public synchronized void restore(ChangeLog saved, Map<String, long[]> stamps, Map<String, Media> current) {
+        synchronized (saved) {
+            sequence = Math.max(sequence, saved.sequence);
+            for (Map.Entry<String, Long> e : saved.tombstones.entrySet())
+                if (!current.containsKey(e.getKey()))
+                    tombstones.merge(e.getKey(), e.getValue(), Math::max);
+        }
+        if (stamps == null)
+            return;
+        savedStamps = new HashMap<>(stamps);
+        for (Media media : current.values())
+            claim(media);
+    }
+
+    // Stamps to save with the usage data, including saved ones not claimed yet
+    public synchronized Map<String, long[]> stamps(Collection<Media> media) {
+        Map<String, long[]> stamps = savedStamps == null ? new HashMap<>() : new HashMap<>(savedStamps);
+        for (Media m : media)
+            stamps.put(m.getId(), new long[] { m.getChangeSequence(), fingerprint(m) });
+        return stamps;
+    }
+
+    // Hash of everything the exporters write for a media
+    static long fingerprint(Media media) {
+        List<String> codes = new ArrayList<>();
+        for (Subject subject : media.getSubjectsView())
+            codes.add(subject.getCode());
+        Collections.sort(codes);
+        return AccessSketches.hash(String.join("\u0000", media.getType(), media.getTitle(),
+                String.valueOf(media.getAuthor()), String.valueOf(media.getPublicationYear()),
+                String.valueOf(media.getDescription()), String.valueOf(media.getAccessCount()),
+                media.getSpecificDetails(), String.join(";", codes)));
+    }
+
+    // Drops tombstones every consumer has seen
+    public synchronized void pruneTombstones(long upTo) {
+        tombstones.values().removeIf(seq -> seq <= upTo);
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+}
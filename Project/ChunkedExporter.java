@@ -0,0 +1,11 @@
+import java.util.List;
+
+// An Exporter whose output can be produced in independent pieces:
+// header, then the formatted chunks in order, then footer.
+interface ChunkedExporter extends Exporter {
+    byte[] header();
+
+    byte[] formatChunk(List<Media> chunk) throws Exception;
+
+    byte[] footer();
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+import java.util.*;
+
+// "Students who viewed this also viewed": an item-item co-occurrence model
+// fed by access events. Each media has a sparse row of co-access counts
+// keyed by media ordinal, pruned to its strongest neighbours so memory
+// stays linear in the catalog size. Media and students are indexed by the
+// library's ordinal registries.
+class CoAccessRecommender implements AccessListener {
+    private static final int RECENT_PER_STUDENT = 20;
+    private static final int MAX_NEIGHBOURS = 50;
+
+    private OrdinalRegistry<Media> mediaOrdinals;
+    private OrdinalRegistry<Student> studentOrdinals;
+    private SparseRow[] rows = new SparseRow[0];
+    // Ring of the last media ordinals each student opened, by student ordinal
+    private int[][] recent = new int[0][];
+    private int[] recentSize = new int[0];
+
+    public CoAccessRecommender(OrdinalRegistry<Media> mediaOrdinals, OrdinalRegistry<Student> studentOrdinals) {
+        this.mediaOrdinals = mediaOrdinals;
+        this.studentOrdinals = studentOrdinals;
+    }
+
+    @Override
+    public synchronized void onAccess(Media accessed, Student student, long timestamp) {
+        if (student == null)
+            return;
+        // Skips media removed before the event was applied
+        int ordinal = mediaOrdinals.ordinalOf(accessed);
+        if (ordinal < 0)
+            return;
+        int s = studentOrdinals.register(student);
+        if (s >= recent.length) {
+            int capacity = Math.max(s + 1, recent.length * 2);
+            recent = Arrays.copyOf(recent, capacity);
+            recentSize = Arrays.copyOf(recentSize, capacity);
+        }
+        if (recent[s] == null)
+            recent[s] = new int[RECENT_PER_STUDENT];
+        int[] ring = recent[s];
+        int size = recentSize[s];
+        int filled = Math.min(size, RECENT_PER_STUDENT);
+        for (int i = 0; i < filled; i++) {
+            if (ring[i] == ordinal)
+                return;
+        }
+        for (int i = 0; i < filled; i++) {
+            row(ordinal).increment(ring[i]);
+            row(ring[i]).increment(ordinal);
+        }
+        ring[size % RECENT_PER_STUDENT] = ordinal;
+        recentSize[s] = size + 1;
+    }
+
+    // Called before the media leaves the registry
+    public synchronized void remove(Media removed) {
+        int ordinal = mediaOrdinals.ordinalOf(removed);
+        if (ordinal >= 0 && ordinal < rows.length)
+            rows[ordinal] = null;
+    }
+
+    // Media most often viewed together with the student's recent media
+    public synchronized List<Media> recommend(Student student, int limit) {
+        List<Media> result = new ArrayList<>();
+        int s = studentOrdinals.ordinalOf(student.getUsername());
+        if (s < 0 || s >= recent.length || recent[s] == null)
+            return result;
+        int[] ring = recent[s];
+        int filled = Math.min(recentSize[s], RECENT_PER_STUDENT);
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < filled; i++)
+            seen.add(ring[i]);
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int i = 0; i < filled; i++) {
+            SparseRow row = existingRow(ring[i]);
+            if (row == null)
+                continue;
+            for (int j = 0; j < row.keys.length; j++) {
+                int other = row.keys[j] - 1;
+                if (other >= 0 && !seen.contains(other) && mediaOrdinals.get(other) != null)
+                    scores.merge(other, row.counts[j], Integer::sum);
+            }
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()));
+        for (int i = 0; i < Math.min(limit, ranked.size()); i++)
+            result.add(mediaOrdinals.get(ranked.get(i).getKey()));
+        return result;
+    }
+
+    // Media most often viewed together with this one
+    public synchronized List<Media> similar(Media target, int limit) {
+        List<Media> result = new ArrayList<>();
+        int ordinal = mediaOrdinals.ordinalOf(target);
+        SparseRow row = ordinal < 0 ? null : existingRow(ordinal);
+        if (row == null)
+            return result;
+        for (int other : row.top(limit)) {
+            Media media = mediaOrdinals.get(other);
+            if (media != null)
+                result.add(media);
+        }
+        return result;
+    }
+
+    // Null for media without co-accesses or removed since; never creates a row
+    private SparseRow existingRow(int ordinal) {
+        return ordinal < rows.length ? rows[ordinal] : null;
+    }
+
+    private SparseRow row(int ordinal) {
+        if (ordinal >= rows.length)
+            rows = Arrays.copyOf(rows, Math.max(ordinal + 1, rows.length * 2));
+        if (rows[ordinal] == null)
+            rows[ordinal] = new SparseRow();
+        return rows[ordinal];
+    }
+
+    // Open-addressing int -> int map; keys are stored as ordinal + 1 so 0 marks a free slot
+    private static class SparseRow {
+        int[] keys = new int[8];
+        int[] counts = new int[8];
+        int size;
+
+        void increment(int ordinal) {
+            int key = ordinal + 1;
+            int slot = find(keys, key);
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            keys[slot] = key;
+            counts[slot] = 1;
+            size++;
+            if (size > 2 * MAX_NEIGHBOURS)
+                prune();
+            else if (size * 2 > keys.length)
+                rehash(keys.length * 2);
+        }
+
+        // Keeps the MAX_NEIGHBOURS strongest co-accesses
+        private void prune() {
+            int[] order = top(MAX_NEIGHBOURS);
+            int[] kept = new int[order.length];
+            for (int i = 0; i < order.length; i++)
+                kept[i] = counts[find(keys, order[i] + 1)];
+            keys = new int[Integer.highestOneBit(MAX_NEIGHBOURS * 4)];
+            counts = new int[keys.length];
+            size = order.length;
+            for (int i = 0; i < order.length; i++) {
+                int slot = find(keys, order[i] + 1);
+                keys[slot] = order[i] + 1;
+                counts[slot] = kept[i];
+            }
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[capacity];
+            counts = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        // Ordinals of the limit highest counts
+        int[] top(int limit) {
+            Integer[] slots = new Integer[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0)
+                    slots[n++] = i;
+            }
+            Arrays.sort(slots, (a, b) -> Integer.compare(counts[b], counts[a]));
+            int[] result = new int[Math.min(limit, n)];
+            for (int i = 0; i < result.length; i++)
+                result[i] = keys[slots[i]] - 1;
+            return result;
+        }
+
+        private static int find(int[] keys, int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9) >>> 16 & mask;
+            while (keys[slot] != 0 && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+import java.io.Serializable;
+
+// Count-Min Sketch: approximate frequencies in fixed memory.
+// With width w = ceil(e / epsilon) and depth d = ceil(ln(1 / delta)), an
+// estimate never undercounts and overcounts by at most epsilon * N with
+// probability 1 - delta, where N is the total of all added counts.
+class CountMinSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private int width;
+    private int depth;
+    private long[][] table;
+    private long[] seeds;
+    private long total;
+
+    public CountMinSketch(double epsilon, double delta) {
+        this((int) Math.ceil(Math.E / epsilon), (int) Math.ceil(Math.log(1 / delta)));
+    }
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0)
+            throw new IllegalArgumentException("Width and depth must be positive");
+        this.width = width;
+        this.depth = depth;
+        this.table = new long[depth][width];
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++)
+            seeds[i] = 0x9E3779B97F4A7C15L * (i + 1);
+    }
+
+    public void add(long key, long count) {
+        for (int i = 0; i < depth; i++)
+            table[i][index(key, i)] += count;
+        total += count;
+    }
+
+    public long estimate(long key) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++)
+            min = Math.min(min, table[i][index(key, i)]);
+        return min;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // Upper bound of the overcount, holding with probability 1 - delta
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    // Sketches built with the same dimensions on different threads or shards add up cell by cell
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth)
+            throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+        for (int i = 0; i < depth; i++)
+            for (int j = 0; j < width; j++)
+                table[i][j] += other.table[i][j];
+        total += other.total;
+    }
+
+    private int index(long key, int row) {
+        long h = (key ^ seeds[row]) * 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) ((h & Long.MAX_VALUE) % width);
+    }
+}
\ No newline at end of file
@@ -25,6 +25,27 @@ public class Demo {
             createDefaultData(library);
         }
 
+        // The windows exit the JVM directly, so usage data is saved here
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            library.close();
+            try {
+                UniversityXMLManager.saveUsageData(library);
+            } catch (Exception e) {
+                System.out.println("Error saving usage data: " + e.getMessage());
+            }
+        }));
+
+        // Headless mode: serve students over the network instead of the GUI
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : MediaLibraryServer.DEFAULT_PORT;
+            try {
+                new MediaLibraryServer(library, port).start();
+            } catch (Exception e) {
+                System.out.println("Error starting server: " + e.getMessage());
+            }
+            return;
+        }
+
         // Start GUI
         SwingUtilities.invokeLater(() -> {
             String[] options = { "Student", "Administrator" };
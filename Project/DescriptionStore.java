@@ -0,0 +1,319 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Store for media descriptions outside the Java heap: a memory-mapped file
+// of UTF-8 blobs addressed by offset, each prefixed with its length and a
+// reference count. The file is mapped in fixed segments and a blob never
+// spans two of them. Media keep only a Handle on the offset and decode the
+// text when it is asked for, so the GC never traces it. The file is a
+// scratch area deleted on exit; the text itself is saved by Media's
+// serialization and the exporters.
+//
+// Identical texts share one blob, so reloading or re-importing a catalog
+// does not grow the file. Only media held by a MediaLibrary are stored
+// here, and the library releases their blobs when it removes or replaces
+// them. A freed blob goes to a free list shared by all stripes; a larger
+// free block is split to fit. Blobs are indexed and counted in stripes
+// chosen by content hash, and each stripe carves new blobs out of its own
+// region of the file, so parallel stores rarely share a lock. When a
+// region runs out, its tail goes to the free list.
+class DescriptionStore {
+    private static final int SEGMENT_SIZE = 1 << 26;
+    private static final int REGION_SIZE = 1 << 16;
+    private static final int HEADER = 2 * Integer.BYTES;
+    private static final int STRIPES = 16;
+    // Smallest blob, and so the smallest free block worth keeping
+    private static final int MIN_CAPACITY = HEADER + 8;
+    private static DescriptionStore shared;
+    private static boolean unavailable;
+
+    private FileChannel channel;
+    // Copied when a segment is added, so readers need no lock
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long end;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // Free blocks by size, guarded by itself
+    private final TreeMap<Integer, ArrayDeque<Long>> free = new TreeMap<>();
+
+    public DescriptionStore(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+    }
+
+    // The process-wide store, or null if no scratch file could be created;
+    // descriptions then stay on the heap
+    public static synchronized DescriptionStore shared() {
+        if (shared == null && !unavailable) {
+            try {
+                File file = File.createTempFile("media-descriptions", ".bin");
+                file.deleteOnExit();
+                shared = new DescriptionStore(file);
+            } catch (IOException e) {
+                System.out.println("Descriptions kept in memory: " + e.getMessage());
+                unavailable = true;
+            }
+        }
+        return shared;
+    }
+
+    // Offset of a blob holding text, with one more reference to it, or -1 if
+    // the text does not fit in a segment
+    public long store(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if ((long) HEADER + bytes.length > SEGMENT_SIZE)
+            return -1;
+        int capacity = capacity(bytes.length);
+        long hash = hash(bytes);
+        Stripe stripe = stripes[(int) (hash >>> 60)];
+        synchronized (stripe) {
+            long offset = stripe.index.get(hash);
+            if (offset >= 0 && contentEquals(offset, bytes)) {
+                MappedByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+                int position = (int) (offset % SEGMENT_SIZE);
+                segment.putInt(position + Integer.BYTES, segment.getInt(position + Integer.BYTES) + 1);
+                return offset;
+            }
+            offset = takeFree(capacity);
+            if (offset < 0)
+                offset = allocate(stripe, capacity);
+            MappedByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+            int position = (int) (offset % SEGMENT_SIZE);
+            segment.putInt(position, bytes.length);
+            segment.putInt(position + Integer.BYTES, 1);
+            segment.put(position + HEADER, bytes);
+            // On a hash collision only the first blob is shared
+            if (stripe.index.get(hash) < 0)
+                stripe.index.put(hash, offset);
+            return offset;
+        }
+    }
+
+    // Drops one reference taken by store
+    public void release(long offset) {
+        MappedByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+        int position = (int) (offset % SEGMENT_SIZE);
+        byte[] bytes = new byte[segment.getInt(position)];
+        segment.get(position + HEADER, bytes);
+        long hash = hash(bytes);
+        Stripe stripe = stripes[(int) (hash >>> 60)];
+        synchronized (stripe) {
+            int references = segment.getInt(position + Integer.BYTES) - 1;
+            segment.putInt(position + Integer.BYTES, references);
+            if (references > 0)
+                return;
+            if (stripe.index.get(hash) == offset)
+                stripe.index.remove(hash);
+            putFree(offset, capacity(bytes.length));
+        }
+    }
+
+    // Only valid while the caller holds a reference to the blob
+    public String read(long offset) {
+        MappedByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+        int position = (int) (offset % SEGMENT_SIZE);
+        byte[] bytes = new byte[segment.getInt(position)];
+        segment.get(position + HEADER, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Bytes handed out to regions and blobs, including the segment tails
+    // left unused; freed blobs stay counted
+    public synchronized long size() {
+        return end;
+    }
+
+    private static int capacity(int length) {
+        return (HEADER + length + 7) & ~7;
+    }
+
+    private boolean contentEquals(long offset, byte[] bytes) {
+        MappedByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+        int position = (int) (offset % SEGMENT_SIZE);
+        if (segment.getInt(position) != bytes.length)
+            return false;
+        for (int i = 0; i < bytes.length; i++)
+            if (segment.get(position + HEADER + i) != bytes[i])
+                return false;
+        return true;
+    }
+
+    // A free block of exactly capacity bytes, or the part of a larger one
+    // that leaves a usable remainder; -1 if there is none
+    private long takeFree(int capacity) {
+        synchronized (free) {
+            int size = capacity;
+            ArrayDeque<Long> blocks = free.get(size);
+            if (blocks == null) {
+                Map.Entry<Integer, ArrayDeque<Long>> larger = free.ceilingEntry(capacity + MIN_CAPACITY);
+                if (larger == null)
+                    return -1;
+                size = larger.getKey();
+                blocks = larger.getValue();
+            }
+            long offset = blocks.pop();
+            if (blocks.isEmpty())
+                free.remove(size);
+            if (size > capacity)
+                putFree(offset + capacity, size - capacity);
+            return offset;
+        }
+    }
+
+    private void putFree(long offset, int size) {
+        if (size < MIN_CAPACITY)
+            return;
+        synchronized (free) {
+            free.computeIfAbsent(size, s -> new ArrayDeque<>()).push(offset);
+        }
+    }
+
+    // Carves the blob out of the stripe's region, the caller holding the
+    // stripe; large blobs and new regions come from the end of the file
+    private long allocate(Stripe stripe, int capacity) throws IOException {
+        if (capacity > REGION_SIZE / 4)
+            return reserve(capacity);
+        if (stripe.limit - stripe.next < capacity) {
+            putFree(stripe.next, (int) (stripe.limit - stripe.next));
+            stripe.next = reserve(REGION_SIZE);
+            stripe.limit = stripe.next + REGION_SIZE;
+        }
+        long offset = stripe.next;
+        stripe.next += capacity;
+        return offset;
+    }
+
+    private synchronized long reserve(int size) throws IOException {
+        int index = (int) (end / SEGMENT_SIZE);
+        int position = (int) (end % SEGMENT_SIZE);
+        if (position + size > SEGMENT_SIZE) {
+            index++;
+            position = 0;
+        }
+        segment(index);
+        long offset = (long) index * SEGMENT_SIZE + position;
+        end = offset + size;
+        return offset;
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length)
+            return current[index];
+        MappedByteBuffer[] next = Arrays.copyOf(current, index + 1);
+        for (int i = current.length; i <= index; i++)
+            next[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * SEGMENT_SIZE, SEGMENT_SIZE);
+        segments = next;
+        return next[index];
+    }
+
+    // 64-bit FNV-1a
+    private static long hash(byte[] bytes) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    // The offset a media currently holds, -1 for none
+    static class Handle {
+        volatile long offset = -1;
+        // Bumped after every change of offset, before the old blob is
+        // released, so readers can tell a reused offset from their own
+        volatile int changes;
+    }
+
+    private static class Stripe {
+        final OffsetIndex index = new OffsetIndex();
+        // Unused part of the stripe's region
+        long next;
+        long limit;
+    }
+
+    // Content hash -> blob offset, open addressing with linear probing
+    private static class OffsetIndex {
+        private long[] hashes = new long[64];
+        private long[] offsets = empty(64);
+        private int size;
+
+        long get(long hash) {
+            int mask = offsets.length - 1;
+            for (int i = slot(hash, mask); offsets[i] >= 0; i = (i + 1) & mask)
+                if (hashes[i] == hash)
+                    return offsets[i];
+            return -1;
+        }
+
+        void put(long hash, long offset) {
+            if ((size + 1) * 2 > offsets.length)
+                resize();
+            int mask = offsets.length - 1;
+            int i = slot(hash, mask);
+            while (offsets[i] >= 0) {
+                if (hashes[i] == hash) {
+                    offsets[i] = offset;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            hashes[i] = hash;
+            offsets[i] = offset;
+            size++;
+        }
+
+        // Shifts the following entries back instead of leaving a marker
+        void remove(long hash) {
+            int mask = offsets.length - 1;
+            int i = slot(hash, mask);
+            while (offsets[i] >= 0 && hashes[i] != hash)
+                i = (i + 1) & mask;
+            if (offsets[i] < 0)
+                return;
+            offsets[i] = -1;
+            size--;
+            for (int j = (i + 1) & mask; offsets[j] >= 0; j = (j + 1) & mask) {
+                int home = slot(hashes[j], mask);
+                // Moves j into the hole unless its home lies in (i, j]
+                boolean between = i <= j ? i < home && home <= j : i < home || home <= j;
+                if (!between) {
+                    hashes[i] = hashes[j];
+                    offsets[i] = offsets[j];
+                    offsets[j] = -1;
+                    i = j;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldHashes = hashes;
+            long[] oldOffsets = offsets;
+            hashes = new long[oldHashes.length * 2];
+            offsets = empty(oldOffsets.length * 2);
+            size = 0;
+            for (int i = 0; i < oldOffsets.length; i++)
+                if (oldOffsets[i] >= 0)
+                    put(oldHashes[i], oldOffsets[i]);
+        }
+
+        private static int slot(long hash, int mask) {
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static long[] empty(int length) {
+            long[] offsets = new long[length];
+            Arrays.fill(offsets, -1);
+            return offsets;
+        }
+    }
+}
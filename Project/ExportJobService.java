@@ -0,0 +1,190 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+// Runs exports on low-priority background threads. A job streams the media
+// off the library with MediaLibrary.iterateMedia, so it needs no copy of the
+// catalog and only holds the library lock one page at a time.
+// Jobs report rows and bytes written, can be cancelled, and can be limited
+// to a number of bytes per second written to disk.
+class ExportJobService {
+    private static final int THROTTLE_SLICE = 1 << 16;
+
+    private ExecutorService executor;
+
+    public ExportJobService() {
+        this(1);
+    }
+
+    public ExportJobService(int concurrentJobs) {
+        this.executor = Executors.newFixedThreadPool(concurrentJobs, r -> {
+            Thread t = new Thread(r, "export-job");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    // criteria null exports the whole catalog; bytesPerSecond <= 0 means no
+    // limit. A target ending with .gz is compressed.
+    public ExportJob submit(MediaLibrary library, Exporter exporter, FilterCriteria criteria,
+            String filePath, long bytesPerSecond) {
+        ExportJob job = new ExportJob(bytesPerSecond);
+        job.future = executor.submit(() -> {
+            library.flushAccessEvents();
+            int expected = criteria == null ? library.getAggregates().getMediaCount() : -1;
+            job.run(exporter, library.iterateMedia(criteria), expected, filePath);
+            return null;
+        });
+        return job;
+    }
+
+    // Takes no new jobs; submitted ones still run to the end unless cancelled
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    static class ExportJob {
+        private final long bytesPerSecond;
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile int totalRows = -1;
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        private ExportJob(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        // Media in the library when the export started; -1 before that and
+        // for filtered exports, whose row count is only known at the end
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        // Rows handed to the exporter so far
+        public long getRowsWritten() {
+            return rows.get();
+        }
+
+        // Bytes written to the file, after compression
+        public long getBytesWritten() {
+            return bytes.get();
+        }
+
+        public void cancel() {
+            cancelled = true;
+            future.cancel(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        // Waits for the job; throws CancellationException if it was cancelled
+        public void get() throws Exception {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception)
+                    throw (Exception) e.getCause();
+                throw e;
+            }
+        }
+
+        private void run(Exporter exporter, Iterator<Media> media, int expected, String filePath) throws Exception {
+            totalRows = expected;
+            OutputStream out = new ProgressOutputStream(Files.newOutputStream(Paths.get(filePath)));
+            try {
+                if (filePath.endsWith(".gz"))
+                    out = new GZIPOutputStream(out, THROTTLE_SLICE);
+                exporter.export(new ProgressIterator(media), out);
+                out.close();
+            } catch (Exception e) {
+                // No partial files are left behind
+                try {
+                    out.close();
+                } catch (IOException | RuntimeException ignored) {
+                }
+                Files.deleteIfExists(Paths.get(filePath));
+                throw e;
+            }
+        }
+
+        private void checkCancelled() {
+            if (cancelled || Thread.currentThread().isInterrupted())
+                throw new CancellationException("Export cancelled");
+        }
+
+        private class ProgressIterator implements Iterator<Media> {
+            private Iterator<Media> media;
+
+            ProgressIterator(Iterator<Media> media) {
+                this.media = media;
+            }
+
+            @Override
+            public boolean hasNext() {
+                checkCancelled();
+                return media.hasNext();
+            }
+
+            @Override
+            public Media next() {
+                rows.incrementAndGet();
+                return media.next();
+            }
+        }
+
+        // Counts bytes and, with a bandwidth limit, sleeps whenever the
+        // export gets ahead of bytesPerSecond since it started
+        private class ProgressOutputStream extends FilterOutputStream {
+            private final long start = System.nanoTime();
+
+            ProgressOutputStream(OutputStream out) {
+                super(out);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                written(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int n = Math.min(len, THROTTLE_SLICE);
+                    out.write(b, off, n);
+                    written(n);
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            private void written(int n) throws IOException {
+                checkCancelled();
+                long total = bytes.addAndGet(n);
+                if (bytesPerSecond <= 0)
+                    return;
+                long ahead = (long) (total * 1e9 / bytesPerSecond) - (System.nanoTime() - start);
+                if (ahead > 1_000_000L) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(ahead);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Export cancelled");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,16 @@
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 interface Exporter {
     void export(List<Media> mediaList, String filePath) throws Exception;
+
+    // Writes the media as they are iterated, without materialising a list.
+    // The stream is flushed but left open; wrap a WritableByteChannel with
+    // java.nio.channels.Channels.newOutputStream.
+    void export(Iterator<Media> media, OutputStream out) throws Exception;
+
+    // Delta export: the changed media, then the ids of the removed ones
+    void exportChanges(Iterator<Media> changed, Collection<String> removedIds, OutputStream out) throws Exception;
 }
\ No newline at end of file
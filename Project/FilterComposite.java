@@ -36,4 +36,24 @@ class FilterComposite implements FilterCriteria {
             return false;
         }
     }
+
+    @Override
+    public boolean matches(MediaStore.Cursor row) {
+        if (criteria.isEmpty())
+            return true;
+
+        if (operator == Operator.AND) {
+            for (FilterCriteria c : criteria) {
+                if (!c.matches(row))
+                    return false;
+            }
+            return true;
+        } else { // OR
+            for (FilterCriteria c : criteria) {
+                if (c.matches(row))
+                    return true;
+            }
+            return false;
+        }
+    }
 }
\ No newline at end of file
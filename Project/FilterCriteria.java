@@ -1,3 +1,9 @@
 interface FilterCriteria {
     boolean matches(Media media);
+
+    // Columnar version used by MediaLibrary searches; filters that only need
+    // the stored columns override it to skip fetching the Media
+    default boolean matches(MediaStore.Cursor row) {
+        return matches(row.getMedia());
+    }
 }
\ No newline at end of file
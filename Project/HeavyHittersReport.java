@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+class HeavyHittersReport implements StatisticsReport {
+    private int limit;
+
+    public HeavyHittersReport(int limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public String generateReport(MediaLibrary lib) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeReport(lib, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void writeReport(MediaLibrary lib, Appendable out) throws IOException {
+        AccessSketches sketches = lib.getAccessSketches();
+        out.append("Approximate Most Accessed Media\n");
+        out.append("==========================================\n");
+
+        List<String> topMedia = sketches.getTopMedia(limit);
+        for (int i = 0; i < topMedia.size(); i++) {
+            String id = topMedia.get(i);
+            out.append(String.valueOf(i + 1)).append(". ").append(id).append(" - ~")
+                    .append(String.valueOf(sketches.getTopMediaCount(id))).append(" accesses\n");
+        }
+
+        out.append("\nApproximate Most Frequent Student/Media Pairs\n");
+        out.append("==========================================\n");
+        List<String> topPairs = sketches.getTopStudentMedia(limit);
+        for (int i = 0; i < topPairs.size(); i++) {
+            String key = topPairs.get(i);
+            int separator = key.indexOf('|');
+            out.append(String.valueOf(i + 1)).append(". ").append(key, 0, separator)
+                    .append(" by ").append(key, separator + 1, key.length()).append(" - ~")
+                    .append(String.valueOf(sketches.getTopStudentMediaCount(key))).append(" accesses\n");
+        }
+
+        out.append("\nCounts may be overestimated by up to ")
+                .append(String.valueOf(sketches.getTopErrorBound())).append(" accesses\n");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof HeavyHittersReport))
+            return false;
+        return limit == ((HeavyHittersReport) o).limit;
+    }
+
+    @Override
+    public int hashCode() {
+        return limit;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+interface Importer {
+    // Parses a file written by the matching exporter into new media. Subject
+    // codes are resolved against the library; unknown codes are skipped.
+    // Records that cannot be read fail the import with an
+    // IllegalArgumentException naming the record.
+    List<Media> importMedia(String filePath, MediaLibrary library) throws Exception;
+
+    // Upper bound on the bytes a parse task copies onto the heap at once
+    int MAX_CHUNK_BYTES = 1 << 24;
+
+    // The file mapped read-only, so it stays off the heap; a .gz file is
+    // first inflated into a temporary file
+    static ByteBuffer mapFile(String filePath) throws IOException {
+        if (!filePath.endsWith(".gz"))
+            return map(Paths.get(filePath));
+        File inflated = File.createTempFile("media-import", ".tmp");
+        inflated.deleteOnExit();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(Paths.get(filePath)), 1 << 16)) {
+            Files.copy(in, inflated.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return map(inflated.toPath());
+        } finally {
+            // The mapping outlives the file where the platform allows it
+            inflated.delete();
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("File too large to import: " + path);
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Number of chunks to cut data into: enough to keep the pool busy, none
+    // smaller than minBytes unless there is only one, none above MAX_CHUNK_BYTES
+    static int chunkCount(int length, ForkJoinPool pool, int minBytes) {
+        int chunks = Math.min(pool.getParallelism() * 4, length / minBytes);
+        return Math.max(1, Math.max(chunks, (int) ((length + (long) MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES)));
+    }
+
+    // Runs the parse on the pool and rethrows its own error, not the wrapper
+    static <T> T parseOn(ForkJoinPool pool, Callable<T> parse) throws Exception {
+        try {
+            return pool.submit(parse).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // Fork/join copies an error thrown on another worker into a new
+            // exception of the same type with the original as its cause
+            while (cause.getCause() != null && cause.getCause().getClass() == cause.getClass())
+                cause = cause.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    static Map<String, Subject> subjectsByCode(MediaLibrary library) {
+        Map<String, Subject> subjects = new HashMap<>();
+        for (Subject subject : library.getAllSubjects())
+            subjects.put(subject.getCode(), subject);
+        return subjects;
+    }
+
+    // The exports do not carry the type specific details, so pages and
+    // durations start at 0 and quizzes at Intermediate difficulty
+    static Media createMedia(String type, String id, String title, String author, int year,
+            String description, int accessCount) {
+        MediaFactory factory;
+        try {
+            factory = MediaFactoryRegistry.getInstance().getFactory(type);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed record " + id + ": unknown type " + type);
+        }
+        Media media = "Online Quiz".equalsIgnoreCase(type)
+                ? factory.createMedia(id, title, author, year, description, 0, "Intermediate")
+                : factory.createMedia(id, title, author, year, description, 0);
+        media.setAccessCount(accessCount);
+        return media;
+    }
+}
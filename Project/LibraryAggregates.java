@@ -0,0 +1,123 @@
+import java.util.*;
+
+// Counters and histograms for the admin dashboards, updated by MediaLibrary
+// on every mutation (under its write lock) instead of being recomputed
+// from the full lists each time a dashboard opens.
+class LibraryAggregates {
+    private Map<String, Integer> mediaByType = new TreeMap<>();
+    private Map<String, Integer> studentsBySpecialty = new TreeMap<>();
+    private int mediaCount;
+    private int studentCount;
+    private int administratorCount;
+    private int specialtyCount;
+    private int subjectCount;
+
+    void mediaAdded(Media media) {
+        mediaCount++;
+        mediaByType.merge(media.getType(), 1, Integer::sum);
+    }
+
+    void mediaRemoved(Media media) {
+        mediaCount--;
+        decrement(mediaByType, media.getType());
+    }
+
+    void studentAdded(Student student) {
+        studentCount++;
+        studentsBySpecialty.merge(specialtyName(student), 1, Integer::sum);
+    }
+
+    void studentRemoved(Student student) {
+        studentCount--;
+        decrement(studentsBySpecialty, specialtyName(student));
+    }
+
+    void administratorCountChanged(int delta) {
+        administratorCount += delta;
+    }
+
+    void specialtyCountChanged(int delta) {
+        specialtyCount += delta;
+    }
+
+    void subjectCountChanged(int delta) {
+        subjectCount += delta;
+    }
+
+    void clear() {
+        mediaByType.clear();
+        studentsBySpecialty.clear();
+        mediaCount = 0;
+        studentCount = 0;
+        administratorCount = 0;
+        specialtyCount = 0;
+        subjectCount = 0;
+    }
+
+    // Copies only the small histograms, independent of the catalog size
+    Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    private static String specialtyName(Student student) {
+        return student.getSpecialty() == null ? "None" : student.getSpecialty().getName();
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+        Integer count = counts.get(key);
+        if (count == null)
+            return;
+        if (count <= 1)
+            counts.remove(key);
+        else
+            counts.put(key, count - 1);
+    }
+
+    static class Snapshot {
+        private final Map<String, Integer> mediaByType;
+        private final Map<String, Integer> studentsBySpecialty;
+        private final int mediaCount;
+        private final int studentCount;
+        private final int administratorCount;
+        private final int specialtyCount;
+        private final int subjectCount;
+
+        private Snapshot(LibraryAggregates aggregates) {
+            mediaByType = Collections.unmodifiableMap(new TreeMap<>(aggregates.mediaByType));
+            studentsBySpecialty = Collections.unmodifiableMap(new TreeMap<>(aggregates.studentsBySpecialty));
+            mediaCount = aggregates.mediaCount;
+            studentCount = aggregates.studentCount;
+            administratorCount = aggregates.administratorCount;
+            specialtyCount = aggregates.specialtyCount;
+            subjectCount = aggregates.subjectCount;
+        }
+
+        public Map<String, Integer> getMediaByType() {
+            return mediaByType;
+        }
+
+        public Map<String, Integer> getStudentsBySpecialty() {
+            return studentsBySpecialty;
+        }
+
+        public int getMediaCount() {
+            return mediaCount;
+        }
+
+        public int getStudentCount() {
+            return studentCount;
+        }
+
+        public int getAdministratorCount() {
+            return administratorCount;
+        }
+
+        public int getSpecialtyCount() {
+            return specialtyCount;
+        }
+
+        public int getSubjectCount() {
+            return subjectCount;
+        }
+    }
+}
\ No newline at end of file
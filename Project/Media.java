@@ -1,25 +1,52 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.HashSet;
-import java.io.Serializable;
+import java.io.*;
 
+// Subjects are kept as an array sorted by subject code rather than a set,
+// authors are shared through the StringDictionary and descriptions live in
+// the off-heap DescriptionStore. The serialized form is unchanged: subjects
+// are still written as a Set<Subject> and the description as text.
 abstract class Media implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final Subject[] NO_SUBJECTS = new Subject[0];
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", String.class),
+            new ObjectStreamField("title", String.class),
+            new ObjectStreamField("author", String.class),
+            new ObjectStreamField("publicationYear", int.class),
+            new ObjectStreamField("description", String.class),
+            new ObjectStreamField("accessCount", int.class),
+            new ObjectStreamField("subjects", Set.class),
+            new ObjectStreamField("changeSequence", long.class)
+    };
+
     private String id;
     private String title;
     private String author;
     private int publicationYear;
-    private String description;
+    // Offset in the DescriptionStore, created the first time the description
+    // goes off-heap; while it holds -1 the text is held in description
+    private volatile DescriptionStore.Handle descriptionHandle;
+    private volatile String description;
+    // Set while a library holds the media, see moveDescriptionOffHeap
+    private boolean descriptionOffHeap;
     private int accessCount;
-    private Set<Subject> subjects;
+    // Replaced, never modified in place, so readers need no lock
+    private volatile Subject[] subjects = NO_SUBJECTS;
+    // Sequence number of the last change, see ChangeLog
+    private volatile long changeSequence;
 
     public Media(String id, String title, String author, int year, String description) {
         this.id = id;
         this.title = title;
-        this.author = author;
+        this.author = StringDictionary.intern(author);
         this.publicationYear = year;
-        this.description = description;
+        setDescription(description);
         this.accessCount = 0;
-        this.subjects = new HashSet<>();
     }
 
     public abstract String getType();
@@ -35,7 +62,9 @@ abstract class Media implements Serializable {
         return title;
     }
 
-    public void setTitle(String t) {
+    // Only MediaLibrary.updateMedia calls the setters, so that its searches
+    // and the change log see every edit
+    void setTitle(String t) {
         title = t;
     }
 
@@ -43,44 +72,248 @@ abstract class Media implements Serializable {
         return author;
     }
 
-    public void setAuthor(String a) {
-        author = a;
+    void setAuthor(String a) {
+        author = StringDictionary.intern(a);
     }
 
     public int getPublicationYear() {
         return publicationYear;
     }
 
-    public void setPublicationYear(int y) {
+    void setPublicationYear(int y) {
         publicationYear = y;
     }
 
+    // Read from the DescriptionStore on every call. A replaced blob may be
+    // freed and reused while it is being read, so the text only counts if
+    // the description did not change in the meantime.
     public String getDescription() {
-        return description;
+        while (true) {
+            DescriptionStore.Handle handle = descriptionHandle;
+            int changes = handle == null ? 0 : handle.changes;
+            long offset = handle == null ? -1 : handle.offset;
+            if (offset < 0) {
+                String text = description;
+                // Unless the text moved off-heap while it was being read
+                handle = descriptionHandle;
+                if (handle == null || handle.offset < 0)
+                    return text;
+                continue;
+            }
+            try {
+                String text = DescriptionStore.shared().read(offset);
+                if (handle.changes == changes)
+                    return text;
+            } catch (RuntimeException e) {
+                if (handle.changes == changes)
+                    throw e;
+            }
+        }
+    }
+
+    public synchronized void setDescription(String d) {
+        placeDescription(d);
+    }
+
+    // Called by a library taking the media in. Its blob is only released by
+    // moveDescriptionOnHeap, so media outside a library keep their text on
+    // the heap where the GC can reclaim it.
+    synchronized void moveDescriptionOffHeap() {
+        if (descriptionOffHeap)
+            return;
+        descriptionOffHeap = true;
+        placeDescription(description);
     }
 
-    public void setDescription(String d) {
+    // Called by the library removing or replacing the media; the media stays
+    // usable by whoever still holds it
+    synchronized void moveDescriptionOnHeap() {
+        if (!descriptionOffHeap)
+            return;
+        descriptionOffHeap = false;
+        placeDescription(getDescription());
+    }
+
+    private void placeDescription(String d) {
+        DescriptionStore store = !descriptionOffHeap || d == null || d.isEmpty() ? null : DescriptionStore.shared();
+        DescriptionStore.Handle handle = descriptionHandle;
+        long previous = handle == null ? -1 : handle.offset;
+        if (store != null) {
+            try {
+                long offset = store.store(d);
+                if (offset >= 0) {
+                    if (handle == null) {
+                        handle = new DescriptionStore.Handle();
+                        descriptionHandle = handle;
+                    }
+                    handle.offset = offset;
+                    handle.changes++;
+                    description = null;
+                    if (previous >= 0)
+                        store.release(previous);
+                    return;
+                }
+            } catch (IOException e) {
+                System.out.println("Description kept in memory: " + e.getMessage());
+            }
+        }
         description = d;
+        if (previous >= 0) {
+            handle.offset = -1;
+            handle.changes++;
+            DescriptionStore.shared().release(previous);
+        }
     }
 
     public int getAccessCount() {
         return accessCount;
     }
 
-    public void incrementAccessCount() {
+    // Restores a count read back from an export
+    public synchronized void setAccessCount(int count) {
+        accessCount = count;
+    }
+
+    public synchronized void incrementAccessCount() {
         accessCount++;
     }
 
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+
+    void setChangeSequence(long sequence) {
+        changeSequence = sequence;
+    }
+
     public Set<Subject> getSubjects() {
-        return new HashSet<>(subjects);
+        return new HashSet<>(Arrays.asList(subjects));
+    }
+
+    // Read-only view of the subjects; iteration sees the subjects as they
+    // were when it started. Prefer it to getSubjects() in loops.
+    public Set<Subject> getSubjectsView() {
+        return new SubjectView();
+    }
+
+    public boolean hasSubject(Subject s) {
+        return s != null && indexOf(subjects, s.getCode()) >= 0;
+    }
+
+    // True if one of the subjects was created for the specialty, the same
+    // rule TopMediaViews ranks by
+    public boolean hasSubjectIn(Specialty specialty) {
+        for (Subject subject : subjects)
+            if (specialty.equals(subject.getSpecialty()))
+                return true;
+        return false;
+    }
+
+    public int getSubjectCount() {
+        return subjects.length;
+    }
+
+    public synchronized void addSubject(Subject s) {
+        Subject[] current = subjects;
+        int pos = indexOf(current, s.getCode());
+        if (pos >= 0)
+            return;
+        pos = -pos - 1;
+        Subject[] next = new Subject[current.length + 1];
+        System.arraycopy(current, 0, next, 0, pos);
+        next[pos] = s;
+        System.arraycopy(current, pos, next, pos + 1, current.length - pos);
+        subjects = next;
+    }
+
+    public synchronized void removeSubject(Subject s) {
+        Subject[] current = subjects;
+        int pos = indexOf(current, s.getCode());
+        if (pos < 0)
+            return;
+        Subject[] next = current.length == 1 ? NO_SUBJECTS : new Subject[current.length - 1];
+        System.arraycopy(current, 0, next, 0, pos);
+        System.arraycopy(current, pos + 1, next, pos, current.length - pos - 1);
+        subjects = next;
+    }
+
+    // Binary search by code, same contract as Arrays.binarySearch
+    private static int indexOf(Subject[] sorted, String code) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = sorted[mid].getCode().compareTo(code);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    private class SubjectView extends AbstractSet<Subject> {
+        @Override
+        public Iterator<Subject> iterator() {
+            Subject[] current = subjects;
+            return new Iterator<Subject>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < current.length;
+                }
+
+                @Override
+                public Subject next() {
+                    if (next >= current.length)
+                        throw new NoSuchElementException();
+                    return current[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return subjects.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Subject && hasSubject((Subject) o);
+        }
     }
 
-    public void addSubject(Subject s) {
-        subjects.add(s);
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("title", title);
+        fields.put("author", author);
+        fields.put("publicationYear", publicationYear);
+        fields.put("description", getDescription());
+        fields.put("accessCount", accessCount);
+        fields.put("subjects", getSubjects());
+        fields.put("changeSequence", changeSequence);
+        out.writeFields();
     }
 
-    public void removeSubject(Subject s) {
-        subjects.remove(s);
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = (String) fields.get("id", null);
+        title = (String) fields.get("title", null);
+        author = StringDictionary.intern((String) fields.get("author", null));
+        publicationYear = fields.get("publicationYear", 0);
+        setDescription((String) fields.get("description", null));
+        accessCount = fields.get("accessCount", 0);
+        changeSequence = fields.get("changeSequence", 0L);
+        subjects = NO_SUBJECTS;
+        Set<Subject> saved = (Set<Subject>) fields.get("subjects", null);
+        if (saved != null)
+            for (Subject subject : saved)
+                addSubject(subject);
     }
 
     @Override
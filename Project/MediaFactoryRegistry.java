@@ -9,6 +9,9 @@ class MediaFactoryRegistry {
         registerFactory("document", new DocumentMediaFactory());
         registerFactory("video", new VideoFactory());
         registerFactory("quiz", new QuizFactory());
+        // Type names as written by the exporters (Media.getType())
+        factories.put("video session", factories.get("video"));
+        factories.put("online quiz", factories.get("quiz"));
     }
 
     public static MediaFactoryRegistry getInstance() {
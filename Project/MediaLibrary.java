@@ -2,74 +2,491 @@ import java.awt.*;
 import java.io.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 
-class MediaLibrary extends Observable {
+class MediaLibrary extends Observable implements AutoCloseable {
+    // Ordinals read per read lock acquisition by iterateMedia
+    private static final int ITERATION_PAGE = 4096;
+
     private Map<String, Media> mediaMap = new HashMap<>();
     private Map<String, Student> studentMap = new HashMap<>();
     private Map<String, Specialty> specialtyMap = new HashMap<>();
     private Map<String, Subject> subjectMap = new HashMap<>();
     private Map<String, Administrator> adminMap = new HashMap<>();
+    // Usernames of students and administrators share a single namespace
+    private Map<String, Object> accountIndex = new ConcurrentHashMap<>();
+    // Shared by the Swing frames and the server sessions
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Bumped on every mutation and access, used to validate cached reports
+    private AtomicLong version = new AtomicLong();
+    // Bumped on every mutation but not on accesses
+    private AtomicLong contentVersion = new AtomicLong();
+    // Media accesses are recorded as events and counted in the background
+    // Only events for the media instance currently in the library are applied
+    private AccessAggregator accessAggregator = new AccessAggregator(media -> this.mediaOrdinals.ordinalOf(media) >= 0);
+    private AccessSketches sketches = new AccessSketches();
+    private TopMediaViews topViews = new TopMediaViews();
+    private LibraryAggregates aggregates = new LibraryAggregates();
+    // Dense ints for the catalog and the students, see OrdinalRegistry
+    private OrdinalRegistry<Media> mediaOrdinals = new OrdinalRegistry<>(Media::getId);
+    private OrdinalRegistry<Student> studentOrdinals = new OrdinalRegistry<>(Student::getUsername);
+    private TrendingStatistics trending = new TrendingStatistics(mediaOrdinals);
+    private CoAccessRecommender recommender = new CoAccessRecommender(mediaOrdinals, studentOrdinals);
+    // Columnar copy of the catalog for searches and scans
+    private MediaStore store = new MediaStore(mediaOrdinals);
+    private StudentAccessHistory accessHistory = new StudentAccessHistory();
+    private AccessCube accessCube = new AccessCube(AccessCube.TimeGranularity.DAY);
+    private ChangeLog changeLog = new ChangeLog();
+
+    public MediaLibrary() {
+        accessAggregator.addListener((media, student, timestamp) -> version.incrementAndGet());
+        accessAggregator.addListener(topViews);
+        accessAggregator.addListener(trending);
+        accessAggregator.addListener(sketches);
+        accessAggregator.addListener(recommender);
+        accessAggregator.addListener(accessHistory);
+        accessAggregator.addListener(accessCube);
+        accessAggregator.addListener(changeLog);
+        accessAggregator.addListener(store);
+        accessAggregator.start();
+    }
 
     // Media operations
     public void addMedia(Media media) {
-        mediaMap.put(media.getId(), media);
-        notifyObservers(media);
+        lock.writeLock().lock();
+        try {
+            putMedia(media);
+            notifyObservers(media);
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Bulk import: one lock acquisition and a single notification for the whole batch
+    public void addAllMedia(Collection<? extends Media> batch) {
+        List<Media> valid = validate(batch);
+        if (valid.isEmpty())
+            return;
+
+        lock.writeLock().lock();
+        try {
+            for (Media media : valid)
+                putMedia(media);
+            notifyObservers(valid);
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Bulk import that leaves media already in the library alone (imports do
+    // not carry the type specific details or the subjects of unknown codes).
+    // Returns the media skipped because their id is taken.
+    public List<Media> addAllNewMedia(Collection<? extends Media> batch) {
+        List<Media> valid = validate(batch);
+        List<Media> added = new ArrayList<>(valid.size());
+        List<Media> skipped = new ArrayList<>();
+        if (valid.isEmpty())
+            return skipped;
+
+        lock.writeLock().lock();
+        try {
+            for (Media media : valid) {
+                if (mediaMap.containsKey(media.getId())) {
+                    skipped.add(media);
+                } else {
+                    putMedia(media);
+                    added.add(media);
+                }
+            }
+            if (!added.isEmpty())
+                notifyObservers(added);
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+        return skipped;
+    }
+
+    private static List<Media> validate(Collection<? extends Media> batch) {
+        List<Media> valid = new ArrayList<>(batch);
+        List<String> invalid = valid.parallelStream()
+                .filter(m -> m == null || m.getId() == null || m.getId().isEmpty() || m.getTitle() == null)
+                .map(m -> m == null ? "null" : String.valueOf(m.getId()))
+                .collect(Collectors.toList());
+        if (!invalid.isEmpty())
+            throw new IllegalArgumentException("Invalid media in batch: " + invalid);
+        return valid;
+    }
+
+    // Caller holds the write lock. Descriptions of held media live in the
+    // DescriptionStore; the library frees them when it lets the media go.
+    private void putMedia(Media media) {
+        Media previous = mediaMap.put(media.getId(), media);
+        mediaOrdinals.register(media);
+        store.put(media);
+        media.moveDescriptionOffHeap();
+        if (previous != null) {
+            topViews.remove(previous);
+            aggregates.mediaRemoved(previous);
+            if (previous != media)
+                previous.moveDescriptionOnHeap();
+        }
+        topViews.add(media);
+        aggregates.mediaAdded(media);
+        changeLog.record(media);
     }
 
     public Media getMedia(String id) {
-        Media media = mediaMap.get(id);
+        return getMedia(id, null);
+    }
+
+    public Media getMedia(String id, Student student) {
+        Media media;
+        lock.readLock().lock();
+        try {
+            media = mediaMap.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
         if (media != null)
-            media.incrementAccessCount();
+            accessAggregator.publish(media, student, System.currentTimeMillis());
         return media;
     }
 
+    // Looks a media up without counting an access
+    public Media findMedia(String id) {
+        lock.readLock().lock();
+        try {
+            return mediaMap.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addAccessListener(AccessListener listener) {
+        accessAggregator.addListener(listener);
+    }
+
+    public void removeAccessListener(AccessListener listener) {
+        accessAggregator.removeListener(listener);
+    }
+
+    // Stops the background access aggregation; the library stays readable
+    // but accesses are no longer counted
+    @Override
+    public void close() {
+        accessAggregator.stop();
+    }
+
+    // Applies pending access events so that access counts are up to date
+    public void flushAccessEvents() {
+        accessAggregator.flush();
+    }
+
     public boolean removeMedia(String id) {
-        return mediaMap.remove(id) != null;
+        // Accesses queued before the removal are still counted
+        flushAccessEvents();
+        lock.writeLock().lock();
+        try {
+            Media removed = mediaMap.remove(id);
+            if (removed == null)
+                return false;
+            trending.remove(removed);
+            topViews.remove(removed);
+            recommender.remove(removed);
+            store.remove(removed);
+            mediaOrdinals.remove(id);
+            aggregates.mediaRemoved(removed);
+            changeLog.recordRemoval(removed);
+            removed.moveDescriptionOnHeap();
+            return true;
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Subject changes on a media in the library go through here to keep the report views in sync
+    public void addSubjectToMedia(Media media, Subject subject) {
+        lock.writeLock().lock();
+        try {
+            if (media.hasSubject(subject))
+                return;
+            media.addSubject(subject);
+            if (mediaMap.get(media.getId()) == media) {
+                topViews.addSubject(media, subject);
+                changeLog.record(media);
+            }
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Edits the scanned fields of a media. Media in the library must be
+    // edited here rather than through the Media setters, which would leave
+    // the columnar store and delta exports behind.
+    public void updateMedia(Media media, String title, String author, int year) {
+        lock.writeLock().lock();
+        try {
+            media.setTitle(title);
+            media.setAuthor(author);
+            media.setPublicationYear(year);
+            if (mediaMap.get(media.getId()) == media) {
+                store.put(media);
+                changeLog.record(media);
+            }
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSubjectFromMedia(Media media, Subject subject) {
+        lock.writeLock().lock();
+        try {
+            if (!media.hasSubject(subject))
+                return;
+            media.removeSubject(subject);
+            if (mediaMap.get(media.getId()) == media) {
+                topViews.removeSubject(media, subject);
+                changeLog.record(media);
+            }
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
     }
 
     public List<Media> getAllMedia() {
-        return new ArrayList<>(mediaMap.values());
+        flushAccessEvents();
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(mediaMap.values());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public List<Media> searchMedia(FilterCriteria criteria) {
         List<Media> result = new ArrayList<>();
-        for (Media media : mediaMap.values()) {
-            if (criteria.matches(media))
-                result.add(media);
+        lock.readLock().lock();
+        try {
+            MediaStore.Cursor row = store.cursor();
+            while (row.next()) {
+                if (criteria.matches(row))
+                    result.add(row.getMedia());
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return result;
     }
 
+    // The media matching criteria (all media if null), read one page of
+    // ordinals at a time under the read lock, so a long walk never holds
+    // writers back for more than a page. Weakly consistent: media present
+    // for the whole walk are returned exactly once, media added, replaced or
+    // removed meanwhile at most once.
+    public Iterator<Media> iterateMedia(FilterCriteria criteria) {
+        return new Iterator<Media>() {
+            private List<Media> page = new ArrayList<>();
+            private int index;
+            private int nextOrdinal;
+
+            @Override
+            public boolean hasNext() {
+                while (index == page.size()) {
+                    if (nextOrdinal >= mediaOrdinals.size())
+                        return false;
+                    page.clear();
+                    index = 0;
+                    lock.readLock().lock();
+                    try {
+                        int end = Math.min(mediaOrdinals.size(), nextOrdinal + ITERATION_PAGE);
+                        for (; nextOrdinal < end; nextOrdinal++) {
+                            Media media = mediaOrdinals.get(nextOrdinal);
+                            if (media != null && (criteria == null || criteria.matches(media)))
+                                page.add(media);
+                        }
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Media next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return page.get(index++);
+            }
+        };
+    }
+
+    // Exports the media matching criteria (all media if null) straight off the
+    // library in constant memory, see iterateMedia
+    public void exportMedia(Exporter exporter, FilterCriteria criteria, OutputStream out) throws Exception {
+        flushAccessEvents();
+        exporter.export(iterateMedia(criteria), out);
+    }
+
+    // Sequence number of the latest media change
+    public long getChangeSequence() {
+        return changeLog.getSequence();
+    }
+
+    // Delta export: the media changed after since and the ids removed after
+    // it. Returns the sequence to pass as since next time; a change may show
+    // up in two consecutive deltas but is never missed. A since above the
+    // current sequence is rejected.
+    public long exportChangesSince(long since, Exporter exporter, OutputStream out) throws Exception {
+        flushAccessEvents();
+        lock.readLock().lock();
+        try {
+            long sequence = changeLog.getSequence();
+            // A since from another library, or from before the counter was kept
+            if (since > sequence)
+                throw new IllegalArgumentException("Change sequence " + since + " is ahead of the library (" + sequence + ")");
+            Iterator<Media> changed = mediaMap.values().stream()
+                    .filter(m -> m.getChangeSequence() > since)
+                    .iterator();
+            exporter.exportChanges(changed, changeLog.getRemovedSince(since), out);
+            return sequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Forgets removals that every delta consumer has already exported
+    public void pruneRemovedMedia(long upTo) {
+        changeLog.pruneTombstones(upTo);
+    }
+
+    // Dense int for a media id, -1 if the id was never in the library.
+    // Ordinals are not reused, so they can index arrays of per-media data.
+    public int getMediaOrdinal(String id) {
+        return mediaOrdinals.ordinalOf(id);
+    }
+
+    // null if the media was removed
+    public Media getMediaByOrdinal(int ordinal) {
+        return mediaOrdinals.get(ordinal);
+    }
+
     public List<Media> searchByTitle(String title) {
         return searchMedia(new TitleFilter(title));
     }
 
     // Student operations
     public void addStudent(Student student) {
-        studentMap.put(student.getUsername(), student);
-        registerObserver(student);
+        lock.writeLock().lock();
+        try {
+            accountIndex.put(student.getUsername(), student);
+            Student previous = studentMap.put(student.getUsername(), student);
+            studentOrdinals.register(student);
+            if (previous != null)
+                aggregates.studentRemoved(previous);
+            aggregates.studentAdded(student);
+            registerObserver(student);
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds the student only if no student or administrator already uses the username
+    public boolean registerStudent(Student student) {
+        if (accountIndex.putIfAbsent(student.getUsername(), student) != null)
+            return false;
+        addStudent(student);
+        return true;
+    }
+
+    public boolean hasStudent(String username) {
+        return accountIndex.get(username) instanceof Student;
     }
 
     public Student authenticateStudent(String username, String password) {
-        Student student = studentMap.get(username);
+        Student student;
+        lock.readLock().lock();
+        try {
+            student = studentMap.get(username);
+        } finally {
+            lock.readLock().unlock();
+        }
         if (student != null && student.getPassword().equals(password)) {
             return student;
         }
         return null;
     }
 
+    // The first limit students, without copying the whole map
+    public List<Student> getStudents(int limit) {
+        List<Student> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Student student : studentMap.values()) {
+                if (result.size() >= limit)
+                    break;
+                result.add(student);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
     public List<Student> getAllStudents() {
-        return new ArrayList<>(studentMap.values());
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(studentMap.values());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     // Administrator operations
     public void addAdministrator(Administrator admin) {
-        adminMap.put(admin.getUsername(), admin);
+        lock.writeLock().lock();
+        try {
+            accountIndex.put(admin.getUsername(), admin);
+            if (adminMap.put(admin.getUsername(), admin) == null)
+                aggregates.administratorCountChanged(1);
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds the administrator only if no student or administrator already uses the username
+    public boolean registerAdministrator(Administrator admin) {
+        if (accountIndex.putIfAbsent(admin.getUsername(), admin) != null)
+            return false;
+        addAdministrator(admin);
+        return true;
+    }
+
+    public boolean isUsernameTaken(String username) {
+        return accountIndex.containsKey(username);
     }
 
     public Administrator authenticateAdministrator(String username, String password) {
-        Administrator admin = adminMap.get(username);
+        Administrator admin;
+        lock.readLock().lock();
+        try {
+            admin = adminMap.get(username);
+        } finally {
+            lock.readLock().unlock();
+        }
         if (admin != null && admin.getPassword().equals(password)) {
             return admin;
         }
@@ -77,32 +494,100 @@ class MediaLibrary extends Observable {
     }
 
     public List<Administrator> getAllAdministrators() {
-        return new ArrayList<>(adminMap.values());
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(adminMap.values());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     // Specialty/Subject operations
     public void addSpecialty(Specialty specialty) {
-        specialtyMap.put(specialty.getName(), specialty);
+        lock.writeLock().lock();
+        try {
+            if (specialtyMap.put(specialty.getName(), specialty) == null)
+                aggregates.specialtyCountChanged(1);
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
     }
 
     public void addSubject(Subject subject) {
-        subjectMap.put(subject.getCode(), subject);
+        lock.writeLock().lock();
+        try {
+            if (subjectMap.put(subject.getCode(), subject) == null)
+                aggregates.subjectCountChanged(1);
+        } finally {
+            changed();
+            lock.writeLock().unlock();
+        }
     }
 
     public Specialty getSpecialty(String name) {
-        return specialtyMap.get(name);
+        lock.readLock().lock();
+        try {
+            return specialtyMap.get(name);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public List<Specialty> getAllSpecialties() {
-        return new ArrayList<>(specialtyMap.values());
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(specialtyMap.values());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public Subject getSubject(String code) {
-        return subjectMap.get(code);
+        lock.readLock().lock();
+        try {
+            return subjectMap.get(code);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public List<Subject> getAllSubjects() {
-        return new ArrayList<>(subjectMap.values());
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(subjectMap.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Dashboard counters, maintained incrementally
+    public LibraryAggregates.Snapshot getAggregates() {
+        lock.readLock().lock();
+        try {
+            return aggregates.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Changes with media, subjects and accounts but not with access counts
+    public long getContentVersion() {
+        return contentVersion.get();
+    }
+
+    private void changed() {
+        contentVersion.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    // Changes only when media ranked under this specialty change; never decreases
+    public long getSpecialtyVersion(Specialty specialty) {
+        return topViews.getVersion(specialty);
     }
 
     // XML operations
@@ -116,49 +601,130 @@ class MediaLibrary extends Observable {
 
     // Statistics
     public List<Media> getMostAccessedMedia(int limit) {
-        List<Media> all = new ArrayList<>(mediaMap.values());
-        all.sort((m1, m2) -> Integer.compare(m2.getAccessCount(), m1.getAccessCount()));
-        return all.subList(0, Math.min(limit, all.size()));
+        flushAccessEvents();
+        lock.readLock().lock();
+        try {
+            return store.mostAccessed(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
-    public List<Media> getMostAccessedBySpecialty(Specialty specialty, int limit) {
-        Set<Subject> specialtySubjects = specialty.getSubjects();
-        List<Media> result = new ArrayList<>();
+    // Total accesses per media type, summed over the columnar store
+    public Map<String, Long> getAccessCountsByType() {
+        flushAccessEvents();
+        lock.readLock().lock();
+        try {
+            return store.accessCountsByType();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-        for (Media media : mediaMap.values()) {
-            for (Subject subject : media.getSubjects()) {
-                if (specialtySubjects.contains(subject)) {
-                    result.add(media);
-                    break;
-                }
-            }
+    public SortedMap<Integer, Integer> getMediaCountByYear() {
+        lock.readLock().lock();
+        try {
+            return store.mediaCountByYear();
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        result.sort((m1, m2) -> Integer.compare(m2.getAccessCount(), m1.getAccessCount()));
-        return result.subList(0, Math.min(limit, result.size()));
+    // Served from the materialized views: O(limit)
+    public List<Media> getMostAccessedBySpecialty(Specialty specialty, int limit) {
+        flushAccessEvents();
+        return topViews.top(specialty, limit);
     }
 
     public List<Media> getMostAccessedBySubject(Subject subject, int limit) {
+        flushAccessEvents();
+        return topViews.top(subject, limit);
+    }
+
+    // Most accessed over the last window milliseconds rather than over the media's lifetime
+    public List<Media> getTrendingMedia(long window, int limit) {
+        flushAccessEvents();
+        return trending.getTrending(window, limit);
+    }
+
+    public List<Media> getTrendingBySpecialty(Specialty specialty, long window, int limit) {
+        flushAccessEvents();
+        return trending.getTrending(window, limit, specialty);
+    }
+
+    public List<Media> getTrendingBySubject(Subject subject, long window, int limit) {
+        flushAccessEvents();
+        return trending.getTrending(window, limit, subject);
+    }
+
+    public int getRecentAccessCount(Media media, long window) {
+        return trending.getAccessCount(media, window, System.currentTimeMillis());
+    }
+
+    // "Students who viewed this also viewed", based on the student's recent accesses
+    public List<Media> getRecommendations(Student student, int limit) {
+        flushAccessEvents();
+        return recommender.recommend(student, limit);
+    }
+
+    public List<Media> getSimilarMedia(Media media, int limit) {
+        flushAccessEvents();
+        return recommender.similar(media, limit);
+    }
+
+    // Media the student opened, most recent first; removed media are skipped
+    public List<Media> getRecentlyViewed(Student student, int limit) {
+        flushAccessEvents();
         List<Media> result = new ArrayList<>();
-        for (Media media : mediaMap.values()) {
-            if (media.getSubjects().contains(subject)) {
+        for (String id : accessHistory.getRecentlyViewed(student, limit)) {
+            Media media = findMedia(id);
+            if (media != null)
                 result.add(media);
-            }
         }
+        return result;
+    }
+
+    public Media getLastViewed(Student student) {
+        flushAccessEvents();
+        String id = accessHistory.getLastViewed(student);
+        return id == null ? null : findMedia(id);
+    }
 
-        result.sort((m1, m2) -> Integer.compare(m2.getAccessCount(), m1.getAccessCount()));
-        return result.subList(0, Math.min(limit, result.size()));
+    public void exportAccessHistory(Student student, Appendable out) throws IOException {
+        flushAccessEvents();
+        accessHistory.export(student, out);
+    }
+
+    // Pre-aggregated accesses by specialty, subject, type, year and day
+    public AccessCube getAccessCube() {
+        flushAccessEvents();
+        return accessCube;
+    }
+
+    // Approximate statistics for (media, student) and (media, day) keys
+    public AccessSketches getAccessSketches() {
+        flushAccessEvents();
+        return sketches;
     }
 
     // Persistence
     public void saveToBinary(String filePath) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            LibraryData data = new LibraryData(
+        LibraryData data;
+        flushAccessEvents();
+        lock.readLock().lock();
+        try {
+            data = new LibraryData(
                     new ArrayList<>(mediaMap.values()),
                     new ArrayList<>(studentMap.values()),
                     new ArrayList<>(specialtyMap.values()),
                     new ArrayList<>(subjectMap.values()),
-                    new ArrayList<>(adminMap.values()));
+                    new ArrayList<>(adminMap.values()),
+                    accessHistory,
+                    changeLog);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
             oos.writeObject(data);
         }
     }
@@ -167,27 +733,121 @@ class MediaLibrary extends Observable {
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
             LibraryData data = (LibraryData) ois.readObject();
 
-            mediaMap.clear();
-            for (Media m : data.mediaList)
-                mediaMap.put(m.getId(), m);
+            lock.writeLock().lock();
+            try {
+                accountIndex.clear();
+                aggregates.clear();
+                // Ids keep their ordinals, so a reloaded media reuses its slot
+                store.clear();
+                for (Media m : mediaMap.values()) {
+                    mediaOrdinals.remove(m.getId());
+                    m.moveDescriptionOnHeap();
+                }
+                mediaMap.clear();
+                topViews.clear();
+                // Files saved before change sequences existed are numbered afresh
+                if (data.changeLog != null) {
+                    accessAggregator.removeListener(changeLog);
+                    changeLog = data.changeLog;
+                    accessAggregator.addListener(changeLog);
+                }
+                for (Media m : data.mediaList) {
+                    long sequence = m.getChangeSequence();
+                    putMedia(m);
+                    if (data.changeLog != null) {
+                        m.setChangeSequence(sequence);
+                        changeLog.advanceTo(sequence);
+                    }
+                }
+
+                studentMap.clear();
+                for (Student s : data.students) {
+                    accountIndex.put(s.getUsername(), s);
+                    studentMap.put(s.getUsername(), s);
+                    studentOrdinals.register(s);
+                    aggregates.studentAdded(s);
+                    registerObserver(s);
+                }
+
+                specialtyMap.clear();
+                for (Specialty sp : data.specialties)
+                    specialtyMap.put(sp.getName(), sp);
+                aggregates.specialtyCountChanged(specialtyMap.size());
+
+                subjectMap.clear();
+                for (Subject su : data.subjects)
+                    subjectMap.put(su.getCode(), su);
+                aggregates.subjectCountChanged(subjectMap.size());
+
+                adminMap.clear();
+                for (Administrator a : data.administrators) {
+                    accountIndex.put(a.getUsername(), a);
+                    adminMap.put(a.getUsername(), a);
+                }
+                aggregates.administratorCountChanged(adminMap.size());
 
-            studentMap.clear();
-            for (Student s : data.students) {
-                studentMap.put(s.getUsername(), s);
-                registerObserver(s);
+                // Files saved before access history existed have none
+                if (data.accessHistory != null) {
+                    accessAggregator.removeListener(accessHistory);
+                    accessHistory = data.accessHistory;
+                    accessAggregator.addListener(accessHistory);
+                }
+            } finally {
+                changed();
+                lock.writeLock().unlock();
             }
+        }
+    }
 
-            specialtyMap.clear();
-            for (Specialty sp : data.specialties)
-                specialtyMap.put(sp.getName(), sp);
+    // Usage data that universite.xml has no place for (access history and
+    // the change numbering), kept in a file beside it
+    public void saveUsageData(String filePath) throws IOException {
+        flushAccessEvents();
+        UsageData data;
+        lock.readLock().lock();
+        try {
+            data = new UsageData(accessHistory, changeLog, changeLog.stamps(mediaMap.values()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
+            oos.writeObject(data);
+        }
+    }
 
-            subjectMap.clear();
-            for (Subject su : data.subjects)
-                subjectMap.put(su.getCode(), su);
+    public void loadUsageData(String filePath) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
+            UsageData data = (UsageData) ois.readObject();
+
+            lock.writeLock().lock();
+            try {
+                if (data.accessHistory != null) {
+                    accessAggregator.removeListener(accessHistory);
+                    accessHistory = data.accessHistory;
+                    accessAggregator.addListener(accessHistory);
+                }
+                // Media are not in the XML file: the numbering and removals
+                // are carried over, and media added again unchanged (now or
+                // later, as Demo does) get back their saved stamps
+                if (data.changeLog != null)
+                    changeLog.restore(data.changeLog, data.mediaStamps, mediaMap);
+            } finally {
+                changed();
+                lock.writeLock().unlock();
+            }
+        }
+    }
 
-            adminMap.clear();
-            for (Administrator a : data.administrators)
-                adminMap.put(a.getUsername(), a);
+    private static class UsageData implements Serializable {
+        private static final long serialVersionUID = 1L;
+        StudentAccessHistory accessHistory;
+        ChangeLog changeLog;
+        Map<String, long[]> mediaStamps;
+
+        UsageData(StudentAccessHistory history, ChangeLog changes, Map<String, long[]> stamps) {
+            accessHistory = history;
+            changeLog = changes;
+            mediaStamps = stamps;
         }
     }
 
@@ -199,14 +859,19 @@ class MediaLibrary extends Observable {
         List<Specialty> specialties;
         List<Subject> subjects;
         List<Administrator> administrators;
+        StudentAccessHistory accessHistory;
+        ChangeLog changeLog;
 
         public LibraryData(List<Media> ml, List<Student> st, List<Specialty> sp, 
-                          List<Subject> su, List<Administrator> adm) {
+                          List<Subject> su, List<Administrator> adm, StudentAccessHistory history,
+                          ChangeLog changes) {
             mediaList = ml;
             students = st;
             specialties = sp;
             subjects = su;
             administrators = adm;
+            accessHistory = history;
+            changeLog = changes;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Headless mode: serves the student operations of a MediaLibrary over a
+// line-based TCP protocol. Every request is one line, tokens separated by
+// tabs; every response is "OK <rows>" followed by that many tab-separated
+// rows, or a single "ERR <message>" line. Clients may pipeline requests,
+// responses come back in the same order.
+//
+//   LOGIN <username> <password>    -> OK 1 / username, nom, prenom, specialty
+//   SEARCH <TITLE|AUTHOR> <query>  -> OK n / media rows
+//   GET <id>                       -> OK 1 / media row + description + details
+//   MYSUBJECTS                     -> OK n / media rows (requires LOGIN)
+//   TOP <limit>                    -> OK n / media rows
+//   TOPSPEC <specialty> <limit>    -> OK n / media rows
+//   QUIT
+class MediaLibraryServer {
+    static final int DEFAULT_PORT = 5121;
+    private static final int IDLE_TIMEOUT_MS = 30000;
+    private static final int REQUEST_TIMEOUT_MS = 5000;
+    private static final int MAX_LINE_LENGTH = 4096;
+    // Connections above this get "ERR Server busy" and are closed
+    private static final int MAX_SESSIONS = 256;
+
+    private MediaLibrary library;
+    private int port;
+    private ServerSocket serverSocket;
+    private ThreadPoolExecutor sessions = new ThreadPoolExecutor(MAX_SESSIONS, MAX_SESSIONS,
+            60, TimeUnit.SECONDS, new SynchronousQueue<>(), daemonThreads("session"));
+    private ExecutorService workers;
+
+    public MediaLibraryServer(MediaLibrary library, int port) {
+        this.library = library;
+        this.port = port;
+        sessions.allowCoreThreadTimeOut(true);
+        this.workers = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors() * 2, daemonThreads("worker"));
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 1024);
+        Thread acceptor = new Thread(this::acceptLoop, "media-server-acceptor");
+        acceptor.start();
+        System.out.println("Media library server listening on port " + serverSocket.getLocalPort());
+    }
+
+    public void stop() throws IOException {
+        if (serverSocket != null)
+            serverSocket.close();
+        sessions.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setSoTimeout(IDLE_TIMEOUT_MS);
+                client.setTcpNoDelay(true);
+                try {
+                    sessions.execute(() -> serve(client));
+                } catch (RejectedExecutionException e) {
+                    reject(client);
+                }
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    System.out.println("Accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void reject(Socket client) {
+        try (Socket socket = client) {
+            OutputStream out = socket.getOutputStream();
+            out.write(error("Server busy").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            // The client is gone already
+        }
+    }
+
+    private void serve(Socket client) {
+        Session session = new Session();
+        try (Socket socket = client;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("QUIT"))
+                    break;
+                out.write(execute(session, line));
+                // Pipelined requests are answered in one flush
+                if (!in.ready())
+                    out.flush();
+            }
+            out.flush();
+        } catch (SocketTimeoutException e) {
+            // Idle client, drop the connection
+        } catch (IOException e) {
+            System.out.println("Session error: " + e.getMessage());
+        }
+    }
+
+    private String execute(Session session, String line) {
+        if (line.length() > MAX_LINE_LENGTH)
+            return error("Request too long");
+        Future<String> result = workers.submit(() -> handle(session, line.split("\t")));
+        try {
+            return result.get(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            return error("Request timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error("Interrupted");
+        } catch (ExecutionException e) {
+            return error(e.getCause().getMessage());
+        }
+    }
+
+    private String handle(Session session, String[] request) {
+        switch (request[0]) {
+            case "LOGIN":
+                if (request.length < 3)
+                    return error("Usage: LOGIN username password");
+                Student student = library.authenticateStudent(request[1], request[2]);
+                if (student == null)
+                    return error("Invalid credentials");
+                session.student = student;
+                return ok(row(student.getUsername(), student.getNom(), student.getPrenom(),
+                        student.getSpecialty().getName()));
+            case "SEARCH":
+                if (request.length < 3)
+                    return error("Usage: SEARCH TITLE|AUTHOR query");
+                FilterCriteria criteria = "AUTHOR".equals(request[1])
+                        ? new AuthorFilter(request[2]) : new TitleFilter(request[2]);
+                return mediaRows(library.searchMedia(criteria));
+            case "GET":
+                if (request.length < 2)
+                    return error("Usage: GET id");
+                Media media = library.getMedia(request[1], session.student);
+                if (media == null)
+                    return error("Unknown media: " + request[1]);
+                return ok(mediaRow(media) + "\t" + clean(media.getDescription())
+                        + "\t" + clean(media.getSpecificDetails()));
+            case "MYSUBJECTS":
+                if (session.student == null)
+                    return error("Not logged in");
+                // An empty OR composite matches everything
+                if (session.student.getEnrolledSubjectsView().isEmpty())
+                    return "OK 0\n";
+                FilterComposite filter = new FilterComposite(FilterComposite.Operator.OR);
+                for (Subject subject : session.student.getEnrolledSubjectsView())
+                    filter.addCriterion(new SubjectFilter(subject));
+                return mediaRows(library.searchMedia(filter));
+            case "TOP":
+                int top = limit(request, 1);
+                if (top < 0)
+                    return error("Usage: TOP limit (a number >= 0)");
+                return mediaRows(library.getMostAccessedMedia(top));
+            case "TOPSPEC":
+                if (request.length < 2)
+                    return error("Usage: TOPSPEC specialty limit");
+                int topSpec = limit(request, 2);
+                if (topSpec < 0)
+                    return error("Usage: TOPSPEC specialty limit (a number >= 0)");
+                Specialty specialty = library.getSpecialty(request[1]);
+                if (specialty == null)
+                    return error("Unknown specialty: " + request[1]);
+                return mediaRows(library.getMostAccessedBySpecialty(specialty, topSpec));
+            default:
+                return error("Unknown command: " + request[0]);
+        }
+    }
+
+    // 10 if the argument is missing, -1 if it is not a number >= 0
+    private static int limit(String[] request, int index) {
+        if (request.length <= index)
+            return 10;
+        try {
+            return Math.max(-1, Integer.parseInt(request[index]));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String mediaRows(List<Media> mediaList) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("OK ").append(mediaList.size()).append('\n');
+        for (Media media : mediaList)
+            sb.append(mediaRow(media)).append('\n');
+        return sb.toString();
+    }
+
+    private static String mediaRow(Media media) {
+        return row(media.getId(), media.getTitle(), media.getAuthor(),
+                String.valueOf(media.getPublicationYear()), media.getType(),
+                String.valueOf(media.getAccessCount()));
+    }
+
+    private static String row(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0)
+                sb.append('\t');
+            sb.append(clean(fields[i]));
+        }
+        return sb.toString();
+    }
+
+    // Tabs and line breaks are the protocol separators
+    private static String clean(String value) {
+        if (value == null)
+            return "";
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static String ok(String row) {
+        return "OK 1\n" + row + "\n";
+    }
+
+    private static String error(String message) {
+        return "ERR " + clean(message) + "\n";
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, "media-server-" + name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static class Session {
+        volatile Student student;
+    }
+}
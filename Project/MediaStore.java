@@ -0,0 +1,217 @@
+import java.util.*;
+
+// Columnar copy of the scanned media fields, one row per media ordinal:
+// parallel primitive arrays for year, access count, type code and author
+// id, and a string column for titles. Searches and aggregations are loops
+// over these arrays; Media objects are only fetched, through the ordinal
+// registry, for the rows that are returned. A Cursor is a flyweight view
+// of one row at a time.
+//
+// MediaLibrary puts and removes rows under its write lock and scans under
+// its read lock. Access counts are written by the aggregator thread, so
+// they and array growth are guarded by this monitor; like
+// Media.getAccessCount, a scan may see a count one event behind.
+class MediaStore implements AccessListener {
+    private OrdinalRegistry<Media> ordinals;
+    private OrdinalRegistry<String> types = new OrdinalRegistry<>(type -> type);
+    private OrdinalRegistry<String> authors = new OrdinalRegistry<>(author -> author);
+
+    private BitSet live = new BitSet();
+    private int[] years = new int[0];
+    private int[] accessCounts = new int[0];
+    private byte[] typeCodes = new byte[0];
+    private int[] authorIds = new int[0];
+    private String[] titles = new String[0];
+
+    public MediaStore(OrdinalRegistry<Media> ordinals) {
+        this.ordinals = ordinals;
+    }
+
+    // The media must already be registered
+    public synchronized void put(Media media) {
+        int row = ordinals.ordinalOf(media);
+        if (row >= years.length)
+            grow(row + 1);
+        years[row] = media.getPublicationYear();
+        accessCounts[row] = media.getAccessCount();
+        typeCodes[row] = (byte) types.register(media.getType());
+        authorIds[row] = media.getAuthor() == null ? -1 : authors.register(media.getAuthor());
+        titles[row] = media.getTitle();
+        live.set(row);
+    }
+
+    public synchronized void remove(Media media) {
+        int row = ordinals.ordinalOf(media);
+        if (row >= 0 && row < titles.length) {
+            live.clear(row);
+            titles[row] = null;
+        }
+    }
+
+    public synchronized void clear() {
+        live.clear();
+        Arrays.fill(titles, null);
+    }
+
+    @Override
+    public synchronized void onAccess(Media media, Student student, long timestamp) {
+        int row = ordinals.ordinalOf(media);
+        if (row >= 0 && row < accessCounts.length)
+            accessCounts[row] = media.getAccessCount();
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, Math.max(16, years.length + (years.length >> 1)));
+        years = Arrays.copyOf(years, capacity);
+        accessCounts = Arrays.copyOf(accessCounts, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        authorIds = Arrays.copyOf(authorIds, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public int size() {
+        return live.cardinality();
+    }
+
+    // The limit rows with the highest access counts, best first: O(N log K)
+    public List<Media> mostAccessed(int limit) {
+        if (limit <= 0)
+            return new ArrayList<>();
+        // The aggregator keeps writing counts; the heap needs them to hold still
+        int[] counts;
+        synchronized (this) {
+            counts = accessCounts.clone();
+        }
+        // Min-heap of rows on (count, then row)
+        int[] heap = new int[limit];
+        int size = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (size < limit) {
+                heap[size] = row;
+                siftUp(heap, size++, counts);
+            } else if (counts[row] > counts[heap[0]]) {
+                heap[0] = row;
+                siftDown(heap, size, counts);
+            }
+        }
+        List<Media> result = new ArrayList<>(size);
+        while (size > 0) {
+            Media media = ordinals.get(heap[0]);
+            heap[0] = heap[--size];
+            siftDown(heap, size, counts);
+            if (media != null)
+                result.add(media);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // Sum of access counts per media type
+    public Map<String, Long> accessCountsByType() {
+        long[] sums = new long[types.size()];
+        int[] counts = accessCounts;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1))
+            sums[typeCodes[row]] += counts[row];
+        Map<String, Long> result = new TreeMap<>();
+        for (int code = 0; code < sums.length; code++)
+            if (sums[code] > 0)
+                result.put(types.get(code), sums[code]);
+        return result;
+    }
+
+    public SortedMap<Integer, Integer> mediaCountByYear() {
+        SortedMap<Integer, Integer> result = new TreeMap<>();
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1))
+            result.merge(years[row], 1, Integer::sum);
+        return result;
+    }
+
+    private static void siftUp(int[] heap, int i, int[] counts) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(heap[i], heap[parent], counts))
+                break;
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int[] counts) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && less(heap[child + 1], heap[child], counts))
+                child++;
+            if (!less(heap[child], heap[i], counts))
+                break;
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static boolean less(int a, int b, int[] counts) {
+        return counts[a] < counts[b] || (counts[a] == counts[b] && a > b);
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+
+    // Case-insensitive contains without lower-casing a copy of text
+    static boolean containsIgnoreCase(String text, String query) {
+        if (text == null)
+            return false;
+        int last = text.length() - query.length();
+        for (int i = 0; i <= last; i++)
+            if (text.regionMatches(true, i, query, 0, query.length()))
+                return true;
+        return false;
+    }
+
+    // Walks the live rows; the getters read the current row's columns
+    class Cursor {
+        private int row = -1;
+
+        public boolean next() {
+            row = live.nextSetBit(row + 1);
+            return row >= 0;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getPublicationYear() {
+            return years[row];
+        }
+
+        public int getAccessCount() {
+            return accessCounts[row];
+        }
+
+        public String getType() {
+            return types.get(typeCodes[row]);
+        }
+
+        public String getAuthor() {
+            return authorIds[row] < 0 ? null : authors.get(authorIds[row]);
+        }
+
+        public String getTitle() {
+            return titles[row];
+        }
+
+        // The full object, for rows that are kept
+        public Media getMedia() {
+            return ordinals.get(row);
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 class MostAccessedBySpecialtyReport implements StatisticsReport {
@@ -10,20 +12,55 @@ class MostAccessedBySpecialtyReport implements StatisticsReport {
     @Override
     public String generateReport(MediaLibrary lib) {
         StringBuilder sb = new StringBuilder();
-        sb.append("Most Accessed Media for Specialty: ").append(specialtyName).append("\n");
-        sb.append("==========================================\n");
+        try {
+            writeReport(lib, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
 
+    @Override
+    public void writeReport(MediaLibrary lib, Appendable out) throws IOException {
         Specialty spec = lib.getSpecialty(specialtyName);
-        if (spec == null)
-            return "Specialty not found";
+        if (spec == null) {
+            out.append("Specialty not found");
+            return;
+        }
+
+        out.append("Most Accessed Media for Specialty: ").append(specialtyName).append("\n");
+        out.append("==========================================\n");
 
         List<Media> topMedia = lib.getMostAccessedBySpecialty(spec, 10);
         for (int i = 0; i < topMedia.size(); i++) {
             Media m = topMedia.get(i);
-            sb.append(String.format("%d. %s (ID: %s) - %d accesses%n",
-                    i + 1, m.getTitle(), m.getId(), m.getAccessCount()));
+            out.append(String.valueOf(i + 1)).append(". ").append(m.getTitle())
+                    .append(" (ID: ").append(m.getId()).append(") - ")
+                    .append(String.valueOf(m.getAccessCount())).append(" accesses\n");
         }
+    }
 
-        return sb.toString();
+    @Override
+    public long getDataVersion(MediaLibrary lib) {
+        Specialty spec = lib.getSpecialty(specialtyName);
+        if (spec == null)
+            return lib.getVersion();
+        // Both only grow, so the sum changes whenever either does: the ranking
+        // on accesses, the content on title or author edits it would print
+        return lib.getSpecialtyVersion(spec) + lib.getContentVersion();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof MostAccessedBySpecialtyReport))
+            return false;
+        return specialtyName.equals(((MostAccessedBySpecialtyReport) o).specialtyName);
+    }
+
+    @Override
+    public int hashCode() {
+        return specialtyName.hashCode();
     }
 }
\ No newline at end of file
@@ -76,16 +76,17 @@ class NewAdminFrame extends JFrame {
         }
         
         // Vérifier si l'username existe déjà (étudiant ou administrateur)
-        if (library.authenticateStudent(username, password) != null || 
-            library.getAllStudents().stream().anyMatch(s -> s.getUsername().equals(username)) ||
-            library.getAllAdministrators().stream().anyMatch(a -> a.getUsername().equals(username))) {
+        if (library.isUsernameTaken(username)) {
             JOptionPane.showMessageDialog(this, "Username already exists", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
         
         // Créer l'administrateur
         Administrator admin = new Administrator(username, password, nom, prenom, email);
-        library.addAdministrator(admin);
+        if (!library.registerAdministrator(admin)) {
+            JOptionPane.showMessageDialog(this, "Username already exists", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         
         try {
             // Sauvegarder automatiquement dans le fichier universite.xml
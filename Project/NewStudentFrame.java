@@ -97,9 +97,7 @@ class NewStudentFrame extends JFrame {
         }
         
         // Vérifier si l'username existe déjà (étudiant ou administrateur)
-        if (library.authenticateStudent(username, password) != null || 
-            library.getAllStudents().stream().anyMatch(s -> s.getUsername().equals(username)) ||
-            library.getAllAdministrators().stream().anyMatch(a -> a.getUsername().equals(username))) {
+        if (library.isUsernameTaken(username)) {
             JOptionPane.showMessageDialog(this, "Username already exists", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
@@ -122,7 +120,10 @@ class NewStudentFrame extends JFrame {
         // Créer l'étudiant
         Student student = new Student(username, password, nom, prenom, specialtyObj);
         student.enrollInSubject(subject);
-        library.addStudent(student);
+        if (!library.registerStudent(student)) {
+            JOptionPane.showMessageDialog(this, "Username already exists", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         
         try {
             // Sauvegarder automatiquement dans le fichier universite.xml
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Hands out dense int ordinals to entities by string id, in insertion order,
+// and gives array-indexed access back from an ordinal. Counters, rings and
+// bitmaps can then be kept in primitive arrays indexed by ordinal; the ids
+// stay for the external API. An id keeps its ordinal after remove(), so
+// data indexed by it stays valid if the id comes back. Lookups by ordinal
+// do not lock.
+class OrdinalRegistry<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Serializable so that registries can be saved with their owner
+    interface Key<T> extends Function<T, String>, Serializable {
+    }
+
+    private final Key<T> key;
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private volatile Object[] items = new Object[16];
+    private int size;
+
+    public OrdinalRegistry(Key<T> key) {
+        this.key = key;
+    }
+
+    // The ordinal of the item's id, assigned on first sight. The item
+    // replaces any previous one with the same id.
+    public synchronized int register(T item) {
+        String id = key.apply(item);
+        Integer ordinal = ordinals.get(id);
+        if (ordinal == null) {
+            ordinal = size++;
+            ordinals.put(id, ordinal);
+        }
+        Object[] current = items;
+        if (ordinal >= current.length)
+            current = Arrays.copyOf(current, current.length * 2);
+        current[ordinal] = item;
+        // The volatile write publishes the slot to unlocked readers
+        items = current;
+        return ordinal;
+    }
+
+    // -1 if the id never was registered
+    public synchronized int ordinalOf(String id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    // -1 unless this very item is currently registered
+    public int ordinalOf(T item) {
+        int ordinal = ordinalOf(key.apply(item));
+        return ordinal >= 0 && get(ordinal) == item ? ordinal : -1;
+    }
+
+    // null for a removed item or an unknown ordinal
+    @SuppressWarnings("unchecked")
+    public T get(int ordinal) {
+        Object[] current = items;
+        return ordinal >= 0 && ordinal < current.length ? (T) current[ordinal] : null;
+    }
+
+    public synchronized void remove(String id) {
+        Integer ordinal = ordinals.get(id);
+        if (ordinal != null) {
+            Object[] current = items;
+            current[ordinal] = null;
+            items = current;
+        }
+    }
+
+    // Ordinals handed out so far; arrays indexed by ordinal need this length
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+}
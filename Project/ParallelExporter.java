@@ -0,0 +1,163 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+// Formats a catalog in chunks on a fork-join pool. In SINGLE_FILE mode the
+// chunks are stitched in order into one file with positional FileChannel
+// writes; in PART_FILES mode every chunk becomes a complete numbered file
+// listed in a .manifest. A target ending with .gz gets every piece gzipped
+// as its own member, which concatenates into a valid gzip file.
+class ParallelExporter implements Exporter {
+    public enum Mode {
+        SINGLE_FILE, PART_FILES
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    private ChunkedExporter exporter;
+    private Mode mode;
+    private int chunkSize;
+    private ForkJoinPool pool;
+
+    public ParallelExporter(ChunkedExporter exporter) {
+        this(exporter, Mode.SINGLE_FILE, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public ParallelExporter(ChunkedExporter exporter, Mode mode, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive");
+        this.exporter = exporter;
+        this.mode = mode;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    @Override
+    public void export(List<Media> mediaList, String filePath) throws Exception {
+        boolean gzip = filePath.endsWith(".gz");
+        List<List<Media>> chunks = new ArrayList<>();
+        for (int i = 0; i < mediaList.size(); i += chunkSize)
+            chunks.add(mediaList.subList(i, Math.min(i + chunkSize, mediaList.size())));
+
+        if (mode == Mode.PART_FILES)
+            exportParts(chunks, filePath, gzip);
+        else
+            exportSingleFile(chunks, filePath, gzip);
+    }
+
+    // Streaming variant: chunks are pulled from the iterator a window at a
+    // time, formatted in parallel and written in order
+    @Override
+    public void export(Iterator<Media> media, OutputStream out) throws Exception {
+        int window = Math.max(1, pool.getParallelism() * 2);
+        out.write(exporter.header());
+        while (media.hasNext()) {
+            List<List<Media>> batch = new ArrayList<>(window);
+            while (batch.size() < window && media.hasNext()) {
+                List<Media> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && media.hasNext())
+                    chunk.add(media.next());
+                batch.add(chunk);
+            }
+            List<byte[]> formatted = pool.submit(() -> batch.parallelStream()
+                    .map(chunk -> format(chunk, false))
+                    .collect(Collectors.toList())).get();
+            for (byte[] data : formatted)
+                out.write(data);
+        }
+        out.write(exporter.footer());
+        out.flush();
+    }
+
+    // Deltas are small, the wrapped exporter writes them directly
+    @Override
+    public void exportChanges(Iterator<Media> changed, Collection<String> removedIds, OutputStream out)
+            throws Exception {
+        exporter.exportChanges(changed, removedIds, out);
+    }
+
+    private void exportSingleFile(List<List<Media>> chunks, String filePath, boolean gzip) throws Exception {
+        // A window of chunks is formatted at a time to bound memory use
+        int window = Math.max(1, pool.getParallelism() * 2);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = write(channel, encode(exporter.header(), gzip), 0);
+            for (int start = 0; start < chunks.size(); start += window) {
+                List<List<Media>> batch = chunks.subList(start, Math.min(start + window, chunks.size()));
+                List<byte[]> formatted = pool.submit(() -> batch.parallelStream()
+                        .map(chunk -> format(chunk, gzip))
+                        .collect(Collectors.toList())).get();
+
+                long[] offsets = new long[formatted.size()];
+                for (int i = 0; i < formatted.size(); i++) {
+                    offsets[i] = position;
+                    position += formatted.get(i).length;
+                }
+                pool.submit(() -> IntStream.range(0, formatted.size()).parallel()
+                        .forEach(i -> write(channel, formatted.get(i), offsets[i]))).get();
+            }
+            write(channel, encode(exporter.footer(), gzip), position);
+        }
+    }
+
+    private void exportParts(List<List<Media>> chunks, String filePath, boolean gzip) throws Exception {
+        String base = gzip ? filePath.substring(0, filePath.length() - 3) : filePath;
+        String suffix = gzip ? ".gz" : "";
+        String[] lines = pool.submit(() -> IntStream.range(0, chunks.size()).parallel().mapToObj(i -> {
+            Path part = Paths.get(String.format("%s.part%04d%s", base, i, suffix));
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                byte[] header = encode(exporter.header(), gzip);
+                byte[] body = format(chunks.get(i), gzip);
+                byte[] footer = encode(exporter.footer(), gzip);
+                out.write(header);
+                out.write(body);
+                out.write(footer);
+                long size = (long) header.length + body.length + footer.length;
+                return part.getFileName() + "\t" + chunks.get(i).size() + "\t" + size;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).toArray(String[]::new)).get();
+
+        // One line per part in order: file name, rows, bytes
+        Files.write(Paths.get(base + ".manifest"), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private byte[] format(List<Media> chunk, boolean gzip) {
+        try {
+            return encode(exporter.formatChunk(chunk), gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encode(byte[] data, boolean gzip) throws IOException {
+        if (!gzip || data.length == 0)
+            return data;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static long write(FileChannel channel, byte[] data, long position) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return position;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Runs StatisticsReports in parallel and caches each result with the data
+// version it was computed from, so a report is only recomputed once
+// something it depends on has changed.
+class ReportEngine {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private MediaLibrary library;
+    private ExecutorService executor;
+    private Map<StatisticsReport, CachedReport> cache = new ConcurrentHashMap<>();
+
+    public ReportEngine(MediaLibrary library) {
+        this.library = library;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "report-engine");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public String generate(StatisticsReport report) throws Exception {
+        return generateAll(Collections.singletonList(report)).get(report);
+    }
+
+    // Results are returned in the order of the given reports. Access events
+    // keep flowing while the reports run, so each report sees the access
+    // counts as of some point during the run, never older than its start.
+    // Media, subject and account changes are checked for: the reports are
+    // then run again (up to MAX_ATTEMPTS), and if the library still changed
+    // the results are returned with isConsistent() false.
+    public Results generateAll(Collection<? extends StatisticsReport> reports) throws Exception {
+        Map<StatisticsReport, String> results = new HashMap<>();
+        boolean consistent = false;
+        library.flushAccessEvents();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS && !consistent; attempt++) {
+            long before = library.getContentVersion();
+
+            Map<StatisticsReport, Future<String>> running = new LinkedHashMap<>();
+            Map<StatisticsReport, Long> versions = new HashMap<>();
+            for (StatisticsReport report : reports) {
+                long version = report.getDataVersion(library);
+                CachedReport cached = cache.get(report);
+                if (cached != null && cached.version == version) {
+                    results.put(report, cached.result);
+                } else {
+                    versions.put(report, version);
+                    running.put(report, executor.submit(() -> report.generateReport(library)));
+                }
+            }
+
+            for (Map.Entry<StatisticsReport, Future<String>> entry : running.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception)
+                        throw (Exception) e.getCause();
+                    throw e;
+                }
+            }
+
+            // Cached with the version read before running, so a concurrent change invalidates them
+            for (Map.Entry<StatisticsReport, Long> entry : versions.entrySet())
+                cache.put(entry.getKey(), new CachedReport(entry.getValue(), results.get(entry.getKey())));
+
+            consistent = library.getContentVersion() == before;
+        }
+
+        Results ordered = new Results(consistent);
+        for (StatisticsReport report : reports)
+            ordered.put(report, results.get(report));
+        return ordered;
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static class Results extends LinkedHashMap<StatisticsReport, String> {
+        private static final long serialVersionUID = 1L;
+        private boolean consistent;
+
+        Results(boolean consistent) {
+            this.consistent = consistent;
+        }
+
+        // False when the library kept changing and the results may come
+        // from different versions of the data
+        public boolean isConsistent() {
+            return consistent;
+        }
+    }
+
+    private static class CachedReport {
+        final long version;
+        final String result;
+
+        CachedReport(long version, String result) {
+            this.version = version;
+            this.result = result;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+
+// Space-Saving heavy hitters: tracks at most capacity keys. Every key whose
+// true frequency exceeds N / capacity is guaranteed to be tracked, and each
+// reported count overestimates the true one by at most its error value
+// (itself bounded by N / capacity).
+// Counters are kept in a stream summary: a list of buckets sorted by count,
+// each holding the counters with that count, so an increment or an eviction
+// only moves one counter to the neighbouring bucket.
+class SpaceSavingTopK<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private int capacity;
+    private Map<K, Counter> counters = new HashMap<>();
+    private long total;
+    // Rebuilt from the counters on deserialization
+    private transient Bucket min;
+    private transient Bucket max;
+
+    public SpaceSavingTopK(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    public void add(K key) {
+        total++;
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(key, 0, 0);
+                counters.put(key, counter);
+                insert(counter);
+                return;
+            }
+            // The smallest counter is taken over and its count becomes the error
+            counter = min.first;
+            counters.remove(counter.key);
+            counter.key = key;
+            counter.error = counter.count;
+            counters.put(key, counter);
+        }
+        increment(counter);
+    }
+
+    public long estimate(K key) {
+        Counter counter = counters.get(key);
+        return counter == null ? 0 : counter.count;
+    }
+
+    public long getError(K key) {
+        Counter counter = counters.get(key);
+        if (counter != null)
+            return counter.error;
+        return minCount();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public List<K> top(int limit) {
+        List<K> result = new ArrayList<>();
+        for (Bucket b = max; b != null && result.size() < limit; b = b.prev) {
+            for (Counter c = b.first; c != null && result.size() < limit; c = c.next)
+                result.add(c.key);
+        }
+        return result;
+    }
+
+    // Mergeable summaries (Agarwal et al.): a key missing from a full summary
+    // may have occurred up to its minimum count, so that minimum is added to
+    // both the count and the error before trimming back to capacity
+    public void merge(SpaceSavingTopK<K> other) {
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+        Map<K, Counter> merged = new HashMap<>();
+        for (Counter c : counters.values())
+            merged.put(c.key, new Counter(c.key, c.count + otherMin, c.error + otherMin));
+        for (Counter c : other.counters.values()) {
+            Counter m = merged.get(c.key);
+            if (m == null) {
+                merged.put(c.key, new Counter(c.key, c.count + thisMin, c.error + thisMin));
+            } else {
+                // Both summaries track the key
+                m.count += c.count - otherMin;
+                m.error += c.error - otherMin;
+            }
+        }
+        List<Counter> sorted = new ArrayList<>(merged.values());
+        sorted.sort((c1, c2) -> Long.compare(c2.count, c1.count));
+        counters.clear();
+        min = max = null;
+        for (Counter c : sorted.subList(0, Math.min(capacity, sorted.size())))
+            counters.put(c.key, c);
+        rebuild();
+        total += other.total;
+    }
+
+    // Unseen keys occurred at most this often
+    private long minCount() {
+        return counters.size() < capacity || min == null ? 0 : min.count;
+    }
+
+    // Moves a counter one bucket up: O(1)
+    private void increment(Counter counter) {
+        Bucket from = counter.bucket;
+        long count = from.count + 1;
+        Bucket to = from.next;
+        if (to == null || to.count != count) {
+            to = new Bucket(count);
+            link(to, from);
+        }
+        detach(counter);
+        attach(counter, to);
+    }
+
+    // Places a counter with count + 1 coming from outside any bucket, only
+    // used for new keys, whose count is never above the minimum
+    private void insert(Counter counter) {
+        counter.count = 1;
+        Bucket to = min;
+        if (to == null || to.count != 1) {
+            to = new Bucket(1);
+            link(to, null);
+        }
+        attach(counter, to);
+    }
+
+    private void rebuild() {
+        List<Counter> sorted = new ArrayList<>(counters.values());
+        sorted.sort((c1, c2) -> Long.compare(c1.count, c2.count));
+        min = max = null;
+        for (Counter c : sorted) {
+            c.prev = c.next = null;
+            if (max == null || max.count != c.count)
+                link(new Bucket(c.count), max);
+            attach(c, max);
+        }
+    }
+
+    // Links a bucket after the given one, or first when after is null
+    private void link(Bucket bucket, Bucket after) {
+        bucket.prev = after;
+        bucket.next = after == null ? min : after.next;
+        if (bucket.next != null)
+            bucket.next.prev = bucket;
+        else
+            max = bucket;
+        if (after != null)
+            after.next = bucket;
+        else
+            min = bucket;
+    }
+
+    private void attach(Counter counter, Bucket bucket) {
+        counter.bucket = bucket;
+        counter.count = bucket.count;
+        counter.prev = null;
+        counter.next = bucket.first;
+        if (bucket.first != null)
+            bucket.first.prev = counter;
+        bucket.first = counter;
+    }
+
+    // Unlinks a counter, dropping its bucket when it becomes empty
+    private void detach(Counter counter) {
+        Bucket bucket = counter.bucket;
+        if (counter.prev != null)
+            counter.prev.next = counter.next;
+        else
+            bucket.first = counter.next;
+        if (counter.next != null)
+            counter.next.prev = counter.prev;
+        counter.prev = counter.next = null;
+        counter.bucket = null;
+        if (bucket.first == null) {
+            if (bucket.prev != null)
+                bucket.prev.next = bucket.next;
+            else
+                min = bucket.next;
+            if (bucket.next != null)
+                bucket.next.prev = bucket.prev;
+            else
+                max = bucket.prev;
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        rebuild();
+    }
+
+    private class Counter implements Serializable {
+        private static final long serialVersionUID = 1L;
+        K key;
+        long count;
+        long error;
+        transient Bucket bucket;
+        transient Counter prev;
+        transient Counter next;
+
+        Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private class Bucket {
+        final long count;
+        Counter first;
+        Bucket prev;
+        Bucket next;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+}
@@ -1,9 +1,21 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 class Specialty implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Same fields as before, so files written by older versions still load
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("subjects", Set.class)
+    };
     private String name;
     private Set<Subject> subjects = new HashSet<>();
 
@@ -19,10 +31,36 @@ class Specialty implements Serializable {
         return new HashSet<>(subjects);
     }
 
+    // Live read-only view, no copy
+    public Set<Subject> getSubjectsView() {
+        return Collections.unmodifiableSet(subjects);
+    }
+
+    public boolean hasSubject(Subject s) {
+        return subjects.contains(s);
+    }
+
     public void addSubject(Subject s) {
         subjects.add(s);
     }
 
+    // Subjects point back to their specialty, so the name has to be set
+    // before they are read. Older files have the set in the fields instead.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("name", name);
+        out.writeFields();
+        out.writeObject(new ArrayList<>(subjects));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        Set<Subject> saved = (Set<Subject>) fields.get("subjects", null);
+        subjects = new HashSet<>(saved != null ? saved : (List<Subject>) in.readObject());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
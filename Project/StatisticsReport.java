@@ -1,3 +1,15 @@
+import java.io.IOException;
+
 interface StatisticsReport {
     String generateReport(MediaLibrary lib);
+
+    // Streams the report to a file, socket or text area instead of building one String
+    default void writeReport(MediaLibrary lib, Appendable out) throws IOException {
+        out.append(generateReport(lib));
+    }
+
+    // Cached results stay valid while this value does not change
+    default long getDataVersion(MediaLibrary lib) {
+        return lib.getVersion();
+    }
 }
\ No newline at end of file
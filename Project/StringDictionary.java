@@ -0,0 +1,22 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shares one instance per distinct value for strings that repeat across
+// the catalog, such as author names.
+final class StringDictionary {
+    private static final Map<String, String> values = new ConcurrentHashMap<>();
+
+    private StringDictionary() {
+    }
+
+    public static String intern(String value) {
+        if (value == null)
+            return null;
+        String shared = values.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+
+    public static int size() {
+        return values.size();
+    }
+}
@@ -1,5 +1,7 @@
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.io.Serializable;
 
 class Student implements Observer, Serializable {
@@ -43,13 +45,23 @@ class Student implements Observer, Serializable {
         return new HashSet<>(enrolledSubjects);
     }
 
+    // Live read-only view, no copy
+    public Set<Subject> getEnrolledSubjectsView() {
+        return Collections.unmodifiableSet(enrolledSubjects);
+    }
+
+    public boolean isEnrolledIn(Subject s) {
+        return enrolledSubjects.contains(s);
+    }
+
     public void enrollInSubject(Subject s) {
         enrolledSubjects.add(s);
     }
 
     public boolean isInterestedInMedia(Media media) {
-        for (Subject subject : enrolledSubjects) {
-            if (media.getSubjects().contains(subject))
+        // Media usually have fewer subjects than the student is enrolled in
+        for (Subject subject : media.getSubjectsView()) {
+            if (enrolledSubjects.contains(subject))
                 return true;
         }
         return false;
@@ -62,6 +74,16 @@ class Student implements Observer, Serializable {
             if (isInterestedInMedia(newMedia)) {
                 System.out.println("EMAIL to " + username + ": New media '" + newMedia.getTitle() + "' available");
             }
+        } else if (info instanceof Collection) {
+            // Batch import: one email for all the new media
+            int count = 0;
+            for (Object o : (Collection<?>) info) {
+                if (o instanceof Media && isInterestedInMedia((Media) o))
+                    count++;
+            }
+            if (count > 0) {
+                System.out.println("EMAIL to " + username + ": " + count + " new media available");
+            }
         }
     }
 
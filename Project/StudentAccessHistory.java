@@ -0,0 +1,113 @@
+import java.io.*;
+import java.util.*;
+
+// Per-student access history stored as primitive arrays: media ordinals
+// and timestamps in seconds. Each student's ring starts small and grows
+// up to MAX_ENTRIES, after which the oldest entries are overwritten.
+// Saved with the library's binary data so it survives restarts.
+class StudentAccessHistory implements AccessListener, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_ENTRIES = 8;
+    private static final int MAX_ENTRIES = 128;
+    // Timestamps are stored as int seconds since 2020-01-01 UTC
+    private static final long EPOCH_BASE = 1577836800000L;
+
+    // Its own registry of media ids, saved with the histories, so the
+    // ordinals stay valid after reloading and for removed media
+    private OrdinalRegistry<String> mediaOrdinals = new OrdinalRegistry<>(id -> id);
+    private Map<String, History> histories = new HashMap<>();
+
+    @Override
+    public synchronized void onAccess(Media media, Student student, long timestamp) {
+        if (student == null)
+            return;
+        int ordinal = mediaOrdinals.register(media.getId());
+        histories.computeIfAbsent(student.getUsername(), u -> new History())
+                .add(ordinal, (int) ((timestamp - EPOCH_BASE) / 1000));
+    }
+
+    // Distinct media ids, most recently viewed first
+    public synchronized List<String> getRecentlyViewed(Student student, int limit) {
+        List<String> result = new ArrayList<>();
+        History history = histories.get(student.getUsername());
+        if (history == null)
+            return result;
+        for (int i = 0; i < history.size() && result.size() < limit; i++) {
+            String id = mediaOrdinals.get(history.mediaAt(i));
+            if (!result.contains(id))
+                result.add(id);
+        }
+        return result;
+    }
+
+    // "Continue where you left off"
+    public synchronized String getLastViewed(Student student) {
+        History history = histories.get(student.getUsername());
+        if (history == null || history.size() == 0)
+            return null;
+        return mediaOrdinals.get(history.mediaAt(0));
+    }
+
+    // One "timestamp,mediaId" line per access, oldest first
+    public synchronized void export(Student student, Appendable out) throws IOException {
+        History history = histories.get(student.getUsername());
+        if (history == null)
+            return;
+        out.append("Timestamp,MediaID\n");
+        for (int i = history.size() - 1; i >= 0; i--) {
+            out.append(String.valueOf(EPOCH_BASE + history.timeAt(i) * 1000L)).append(',')
+                    .append(mediaOrdinals.get(history.mediaAt(i))).append('\n');
+        }
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        histories = (Map<String, History>) fields.get("histories", null);
+        mediaOrdinals = (OrdinalRegistry<String>) fields.get("mediaOrdinals", null);
+        // Histories are meaningless without the registry their ordinals index
+        if (histories == null || mediaOrdinals == null) {
+            histories = new HashMap<>();
+            mediaOrdinals = new OrdinalRegistry<>(id -> id);
+        }
+    }
+
+    private static class History implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int[] media = new int[INITIAL_ENTRIES];
+        private int[] times = new int[INITIAL_ENTRIES];
+        private int count;
+
+        void add(int ordinal, int seconds) {
+            if (count == media.length && media.length < MAX_ENTRIES) {
+                media = Arrays.copyOf(media, media.length * 2);
+                times = Arrays.copyOf(times, times.length * 2);
+            }
+            int slot = count % media.length;
+            media[slot] = ordinal;
+            times[slot] = seconds;
+            count++;
+        }
+
+        int size() {
+            return Math.min(count, media.length);
+        }
+
+        // index 0 is the most recent entry
+        int mediaAt(int index) {
+            return media[slot(index)];
+        }
+
+        int timeAt(int index) {
+            return times[slot(index)];
+        }
+
+        private int slot(int index) {
+            return Math.floorMod(count - 1 - index, media.length);
+        }
+    }
+}
\ No newline at end of file
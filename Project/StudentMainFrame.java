@@ -53,10 +53,14 @@ class StudentMainFrame extends JFrame {
         JPanel buttonPanel = new JPanel();
         JButton viewBtn = new JButton("View Media");
         JButton filterBtn = new JButton("My Subjects");
+        JButton recommendBtn = new JButton("Recommended");
+        JButton historyBtn = new JButton("Recently Viewed");
         JButton logoutBtn = new JButton("Logout");
 
         buttonPanel.add(viewBtn);
         buttonPanel.add(filterBtn);
+        buttonPanel.add(recommendBtn);
+        buttonPanel.add(historyBtn);
         buttonPanel.add(logoutBtn);
 
         // Layout
@@ -75,7 +79,7 @@ class StudentMainFrame extends JFrame {
             int row = mediaTable.getSelectedRow();
             if (row >= 0) {
                 String id = (String) tableModel.getValueAt(row, 0);
-                Media media = library.getMedia(id);
+                Media media = library.getMedia(id, student);
                 if (media != null) {
                     detailsArea.setText("Title: " + media.getTitle() + "\n" +
                             "Author: " + media.getAuthor() + "\n" +
@@ -95,6 +99,9 @@ class StudentMainFrame extends JFrame {
             displayMedia(library.searchMedia(filter));
         });
 
+        recommendBtn.addActionListener(e -> displayMedia(library.getRecommendations(student, 10)));
+        historyBtn.addActionListener(e -> displayMedia(library.getRecentlyViewed(student, 20)));
+
         searchBtn.addActionListener(e -> {
             String query = searchField.getText();
             String filterType = (String) filterCombo.getSelectedItem();
@@ -1,9 +1,24 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.HashSet;
 
 class Subject implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Same fields as before, so files written by older versions still load
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("code", String.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("specialty", Specialty.class),
+            new ObjectStreamField("mediaList", Set.class)
+    };
     private String code;
     private String name;
     private Specialty specialty;
@@ -31,10 +46,50 @@ class Subject implements Serializable {
         return new HashSet<>(mediaList);
     }
 
+    // Live read-only view, no copy
+    public Set<Media> getMediaView() {
+        return Collections.unmodifiableSet(mediaList);
+    }
+
+    public boolean hasMedia(Media m) {
+        return mediaList.contains(m);
+    }
+
     public void addMedia(Media m) {
         mediaList.add(m);
     }
 
+    // Specialty and media point back to their subjects, so the code has to be
+    // set before they are read, and media (hashed by an id that is only set
+    // once the media is fully read) are only hashed once the whole graph is in.
+    // The references are left null in the fields; older files have them there
+    // and nothing after.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("code", code);
+        fields.put("name", name);
+        out.writeFields();
+        out.writeObject(specialty);
+        out.writeObject(new ArrayList<>(mediaList));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        code = (String) fields.get("code", null);
+        name = (String) fields.get("name", null);
+        Collection<Media> saved = (Set<Media>) fields.get("mediaList", null);
+        if (saved != null) {
+            specialty = (Specialty) fields.get("specialty", null);
+        } else {
+            specialty = (Specialty) in.readObject();
+            saved = (List<Media>) in.readObject();
+        }
+        Collection<Media> media = saved;
+        mediaList = new HashSet<>();
+        in.registerValidation(() -> mediaList.addAll(media), 0);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
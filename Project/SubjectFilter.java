@@ -7,6 +7,6 @@ class SubjectFilter implements FilterCriteria {
 
     @Override
     public boolean matches(Media media) {
-        return media.getSubjects().contains(subject);
+        return media.hasSubject(subject);
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+import java.io.IOException;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+
+// Appendable that pages text into a JTextArea in chunks on the EDT, so a
+// long report shows up progressively instead of being built as one String.
+class TextAreaAppender implements Appendable {
+    private static final int CHUNK_SIZE = 8192;
+
+    private JTextArea area;
+    private StringBuilder pending = new StringBuilder();
+
+    public TextAreaAppender(JTextArea area) {
+        this.area = area;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        pending.append(csq, start, end);
+        if (pending.length() >= CHUNK_SIZE)
+            flush();
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        pending.append(c);
+        if (pending.length() >= CHUNK_SIZE)
+            flush();
+        return this;
+    }
+
+    public void flush() {
+        if (pending.length() == 0)
+            return;
+        String chunk = pending.toString();
+        pending.setLength(0);
+        if (SwingUtilities.isEventDispatchThread())
+            area.append(chunk);
+        else
+            SwingUtilities.invokeLater(() -> area.append(chunk));
+    }
+}
\ No newline at end of file
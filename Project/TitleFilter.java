@@ -9,4 +9,9 @@ class TitleFilter implements FilterCriteria {
     public boolean matches(Media media) {
         return media.getTitle().toLowerCase().contains(title);
     }
+
+    @Override
+    public boolean matches(MediaStore.Cursor row) {
+        return MediaStore.containsIgnoreCase(row.getTitle(), title);
+    }
 }
\ No newline at end of file
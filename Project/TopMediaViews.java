@@ -0,0 +1,141 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Materialized "most accessed" rankings per Specialty and per Subject,
+// kept up to date on every media, subject and access change so reports can
+// read the top entries directly instead of scanning the catalog. A media
+// belongs to the specialty of each of its subjects, see Media.hasSubjectIn.
+class TopMediaViews implements AccessListener {
+    private Map<Subject, Ranking> bySubject = new HashMap<>();
+    private Map<Specialty, Ranking> bySpecialty = new HashMap<>();
+    // Stamps ranking changes; never reset, so versions only grow
+    private AtomicLong clock = new AtomicLong();
+    // Version reported for a specialty without a ranking
+    private long cleared;
+
+    public synchronized void add(Media media) {
+        for (Subject subject : media.getSubjectsView())
+            addSubject(media, subject);
+    }
+
+    public synchronized void remove(Media media) {
+        for (Subject subject : media.getSubjectsView())
+            removeSubject(media, subject);
+    }
+
+    public synchronized void addSubject(Media media, Subject subject) {
+        bySubject.computeIfAbsent(subject, s -> new Ranking(clock)).add(media);
+        if (subject.getSpecialty() != null)
+            bySpecialty.computeIfAbsent(subject.getSpecialty(), s -> new Ranking(clock)).add(media);
+    }
+
+    public synchronized void removeSubject(Media media, Subject subject) {
+        Ranking ranking = bySubject.get(subject);
+        if (ranking != null)
+            ranking.remove(media);
+        if (subject.getSpecialty() != null) {
+            ranking = bySpecialty.get(subject.getSpecialty());
+            if (ranking != null)
+                ranking.remove(media);
+        }
+    }
+
+    public synchronized void clear() {
+        bySubject.clear();
+        bySpecialty.clear();
+        cleared = clock.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void onAccess(Media media, Student student, long timestamp) {
+        for (Subject subject : media.getSubjectsView()) {
+            Ranking ranking = bySubject.get(subject);
+            if (ranking != null)
+                ranking.update(media);
+        }
+        // Ranking.update is a no-op once the count is current, so a specialty
+        // reached through several subjects costs nothing extra
+        for (Subject subject : media.getSubjectsView()) {
+            Specialty specialty = subject.getSpecialty();
+            if (specialty != null) {
+                Ranking ranking = bySpecialty.get(specialty);
+                if (ranking != null)
+                    ranking.update(media);
+            }
+        }
+    }
+
+    public synchronized long getVersion(Specialty specialty) {
+        Ranking ranking = bySpecialty.get(specialty);
+        return ranking == null ? cleared : ranking.version;
+    }
+
+    public synchronized List<Media> top(Specialty specialty, int limit) {
+        Ranking ranking = bySpecialty.get(specialty);
+        return ranking == null ? new ArrayList<>() : ranking.top(limit);
+    }
+
+    public synchronized List<Media> top(Subject subject, int limit) {
+        Ranking ranking = bySubject.get(subject);
+        return ranking == null ? new ArrayList<>() : ranking.top(limit);
+    }
+
+    // Media sorted by the access count they had when last repositioned.
+    // A media can belong to a specialty through several subjects, so
+    // membership is reference counted. Every change stamps the ranking with
+    // a new value of the clock.
+    private static class Ranking {
+        private AtomicLong clock;
+        private long version;
+        private Map<Media, int[]> entries = new HashMap<>();
+        private TreeSet<Media> order = new TreeSet<>((m1, m2) -> {
+            int c = Integer.compare(entries.get(m2)[0], entries.get(m1)[0]);
+            return c != 0 ? c : m1.getId().compareTo(m2.getId());
+        });
+
+        Ranking(AtomicLong clock) {
+            this.clock = clock;
+            this.version = clock.incrementAndGet();
+        }
+
+        void add(Media media) {
+            int[] entry = entries.get(media);
+            if (entry != null) {
+                entry[1]++;
+                return;
+            }
+            entries.put(media, new int[] { media.getAccessCount(), 1 });
+            order.add(media);
+            version = clock.incrementAndGet();
+        }
+
+        void remove(Media media) {
+            int[] entry = entries.get(media);
+            if (entry == null || --entry[1] > 0)
+                return;
+            order.remove(media);
+            entries.remove(media);
+            version = clock.incrementAndGet();
+        }
+
+        void update(Media media) {
+            int[] entry = entries.get(media);
+            if (entry == null || entry[0] == media.getAccessCount())
+                return;
+            order.remove(media);
+            entry[0] = media.getAccessCount();
+            order.add(media);
+            version = clock.incrementAndGet();
+        }
+
+        List<Media> top(int limit) {
+            List<Media> result = new ArrayList<>(Math.min(limit, order.size()));
+            for (Media media : order) {
+                if (result.size() >= limit)
+                    break;
+                result.add(media);
+            }
+            return result;
+        }
+    }
+}
\ No newline at end of file
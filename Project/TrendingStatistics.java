@@ -0,0 +1,144 @@
+import java.util.*;
+
+// Time-bucketed access counters used to find what is popular right now,
+// next to the lifetime Media.accessCount. Each media keeps a fixed ring of
+// hourly buckets (one week) and daily buckets (ninety days). Histograms are
+// indexed by media ordinal and resolved through the library's registry, so
+// a replaced media is reported as its current instance.
+class TrendingStatistics implements AccessListener {
+    static final long HOUR = 60L * 60 * 1000;
+    static final long DAY = 24 * HOUR;
+    private static final int HOURLY_BUCKETS = 24 * 7;
+    private static final int DAILY_BUCKETS = 90;
+
+    private OrdinalRegistry<Media> ordinals;
+    private Histogram[] histograms = new Histogram[0];
+
+    public TrendingStatistics(OrdinalRegistry<Media> ordinals) {
+        this.ordinals = ordinals;
+    }
+
+    @Override
+    public synchronized void onAccess(Media media, Student student, long timestamp) {
+        int ordinal = ordinals.ordinalOf(media);
+        if (ordinal < 0)
+            return;
+        if (ordinal >= histograms.length)
+            histograms = Arrays.copyOf(histograms, Math.max(ordinal + 1, histograms.length * 2));
+        if (histograms[ordinal] == null)
+            histograms[ordinal] = new Histogram();
+        histograms[ordinal].record(timestamp);
+    }
+
+    // Called before the media leaves the registry
+    public synchronized void remove(Media media) {
+        int ordinal = ordinals.ordinalOf(media);
+        if (ordinal >= 0 && ordinal < histograms.length)
+            histograms[ordinal] = null;
+    }
+
+    public synchronized int getAccessCount(Media media, long window, long now) {
+        int ordinal = ordinals.ordinalOf(media);
+        if (ordinal < 0 || ordinal >= histograms.length || histograms[ordinal] == null)
+            return 0;
+        return histograms[ordinal].count(window, now);
+    }
+
+    public List<Media> getTrending(long window, int limit) {
+        return getTrending(window, limit, (Specialty) null);
+    }
+
+    public List<Media> getTrending(long window, int limit, Specialty specialty) {
+        return top(window, limit, media -> specialty == null || media.hasSubjectIn(specialty));
+    }
+
+    public List<Media> getTrending(long window, int limit, Subject subject) {
+        return top(window, limit, media -> media.hasSubject(subject));
+    }
+
+    // Keeps a min-heap of the best limit entries: O(N log K)
+    private synchronized List<Media> top(long window, int limit, FilterCriteria criteria) {
+        List<Media> result = new ArrayList<>();
+        if (limit <= 0)
+            return result;
+        long now = System.currentTimeMillis();
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(limit, Comparator.comparingInt((Ranked r) -> r.count));
+        for (int ordinal = 0; ordinal < histograms.length; ordinal++) {
+            if (histograms[ordinal] == null)
+                continue;
+            int count = histograms[ordinal].count(window, now);
+            if (count == 0 || (heap.size() == limit && count <= heap.peek().count))
+                continue;
+            Media media = ordinals.get(ordinal);
+            if (media == null || !criteria.matches(media))
+                continue;
+            if (heap.size() == limit)
+                heap.poll();
+            heap.add(new Ranked(media, count));
+        }
+        while (!heap.isEmpty())
+            result.add(heap.poll().media);
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static class Ranked {
+        final Media media;
+        final int count;
+
+        Ranked(Media media, int count) {
+            this.media = media;
+            this.count = count;
+        }
+    }
+
+    // Hourly buckets answer windows up to a week, daily buckets anything
+    // longer. Each ring only remembers the epoch of its newest bucket; the
+    // slot of an epoch is epoch % length.
+    private static class Histogram {
+        private int[] hourly = new int[HOURLY_BUCKETS];
+        private int hourlyHead = Integer.MIN_VALUE;
+        private int[] daily = new int[DAILY_BUCKETS];
+        private int dailyHead = Integer.MIN_VALUE;
+
+        void record(long timestamp) {
+            hourlyHead = add(hourly, hourlyHead, (int) (timestamp / HOUR));
+            dailyHead = add(daily, dailyHead, (int) (timestamp / DAY));
+        }
+
+        int count(long window, long now) {
+            if (window <= HOURLY_BUCKETS * HOUR)
+                return sum(hourly, hourlyHead, (int) (now / HOUR), (int) Math.max(1, window / HOUR));
+            return sum(daily, dailyHead, (int) (now / DAY), (int) Math.min(DAILY_BUCKETS, Math.max(1, window / DAY)));
+        }
+
+        // Returns the new head epoch
+        private static int add(int[] buckets, int head, int epoch) {
+            if (head == Integer.MIN_VALUE || epoch - head >= buckets.length) {
+                Arrays.fill(buckets, 0);
+                head = epoch;
+            } else if (epoch > head) {
+                // Clears the slots of the epochs skipped since the head
+                for (int e = head + 1; e <= epoch; e++)
+                    buckets[e % buckets.length] = 0;
+                head = epoch;
+            } else if (head - epoch >= buckets.length) {
+                // Older than the ring
+                return head;
+            }
+            buckets[epoch % buckets.length]++;
+            return head;
+        }
+
+        private static int sum(int[] buckets, int head, int current, int span) {
+            if (head == Integer.MIN_VALUE)
+                return 0;
+            int from = Math.max(current - span + 1, head - buckets.length + 1);
+            int to = Math.min(current, head);
+            int total = 0;
+            for (int e = from; e <= to; e++)
+                total += buckets[e % buckets.length];
+            return total;
+        }
+    }
+}
\ No newline at end of file
@@ -10,6 +10,8 @@ import org.w3c.dom.NodeList;
 
 class UniversityXMLManager {
     private static final String XML_FILE = "universite.xml";
+    // Access history and change numbering, saved with the XML and on exit
+    private static final String USAGE_FILE = "universite-usage.ser";
     
     // Load all data from XML
     public static void loadAllData(MediaLibrary library) throws Exception {
@@ -63,10 +65,7 @@ class UniversityXMLManager {
                 String password = etudElem.getAttribute("password");
                 
                 // Check if student already exists
-                boolean studentExists = library.getAllStudents().stream()
-                    .anyMatch(s -> s.getUsername().equals(username));
-                
-                if (!studentExists) {
+                if (!library.hasStudent(username)) {
                     // Extract name from email/username
                     String[] nameParts = username.split("@")[0].split("\\.");
                     String prenom = nameParts.length > 0 ? capitalize(nameParts[0]) : "Unknown";
@@ -94,6 +93,13 @@ class UniversityXMLManager {
                 }
             }
         }
+
+        if (new File(USAGE_FILE).exists())
+            library.loadUsageData(USAGE_FILE);
+    }
+
+    public static void saveUsageData(MediaLibrary library) throws IOException {
+        library.saveUsageData(USAGE_FILE);
     }
     
     // Save all data to XML
@@ -157,6 +163,8 @@ class UniversityXMLManager {
         DOMSource source = new DOMSource(doc);
         StreamResult result = new StreamResult(new File(XML_FILE));
         transformer.transform(source, result);
+
+        saveUsageData(library);
     }
     
     private static void createDefaultXMLFile() throws Exception {
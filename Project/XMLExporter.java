@@ -1,55 +1,141 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import javax.xml.parsers.*;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.*;
-import javax.xml.transform.stream.*;
-import org.w3c.dom.Element;
+import java.util.Set;
+import javax.xml.stream.*;
+
+// Streams the mediaLibrary/media document with StAX, one element at a
+// time, so memory use does not depend on the size of the catalog.
+class XMLExporter implements ChunkedExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
 
-class XMLExporter implements Exporter {
     @Override
     public void export(List<Media> mediaList, String filePath) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        org.w3c.dom.Document doc = builder.newDocument();
-
-        Element root = doc.createElement("mediaLibrary");
-        doc.appendChild(root);
-
-        for (Media media : mediaList) {
-            Element mediaElem = doc.createElement("media");
-            mediaElem.setAttribute("id", media.getId());
-            mediaElem.setAttribute("type", media.getType());
-
-            addElement(doc, mediaElem, "title", media.getTitle());
-            addElement(doc, mediaElem, "author", media.getAuthor());
-            addElement(doc, mediaElem, "year", String.valueOf(media.getPublicationYear()));
-            addElement(doc, mediaElem, "description", media.getDescription());
-            addElement(doc, mediaElem, "accessCount", String.valueOf(media.getAccessCount()));
-
-            Element subjectsElem = doc.createElement("subjects");
-            for (Subject subject : media.getSubjects()) {
-                Element subjElem = doc.createElement("subject");
-                subjElem.setTextContent(subject.getCode());
-                subjectsElem.appendChild(subjElem);
+        try (OutputStream out = Files.newOutputStream(Paths.get(filePath))) {
+            export(mediaList.iterator(), out);
+        }
+    }
+
+    @Override
+    public void export(Iterator<Media> media, OutputStream out) throws Exception {
+        Writer buffered = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(buffered);
+        writer.writeStartDocument("UTF-8", "1.0");
+        newLine(writer, 0);
+        writer.writeStartElement("mediaLibrary");
+
+        while (media.hasNext())
+            writeMedia(writer, media.next());
+
+        newLine(writer, 0);
+        writer.writeEndElement();
+        newLine(writer, 0);
+        writer.writeEndDocument();
+        writer.flush();
+        buffered.flush();
+    }
+
+    // <mediaChanges> holds the changed media elements, then one
+    // <removed id="..."/> per removed media
+    @Override
+    public void exportChanges(Iterator<Media> changed, Collection<String> removedIds, OutputStream out)
+            throws Exception {
+        Writer buffered = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(buffered);
+        writer.writeStartDocument("UTF-8", "1.0");
+        newLine(writer, 0);
+        writer.writeStartElement("mediaChanges");
+
+        while (changed.hasNext())
+            writeMedia(writer, changed.next());
+        for (String id : removedIds) {
+            newLine(writer, 1);
+            writer.writeEmptyElement("removed");
+            writer.writeAttribute("id", id);
+        }
+
+        newLine(writer, 0);
+        writer.writeEndElement();
+        newLine(writer, 0);
+        writer.writeEndDocument();
+        writer.flush();
+        buffered.flush();
+    }
+
+    @Override
+    public byte[] header() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mediaLibrary>".getBytes(StandardCharsets.UTF_8);
+    }
+
+    // A fragment of media elements, written without a document around it
+    @Override
+    public byte[] formatChunk(List<Media> chunk) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(chunk.size() * 320);
+        XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                .createXMLStreamWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (Media media : chunk)
+            writeMedia(writer, media);
+        writer.flush();
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] footer() {
+        return "\n</mediaLibrary>\n".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void writeMedia(XMLStreamWriter writer, Media media) throws XMLStreamException {
+        newLine(writer, 1);
+        writer.writeStartElement("media");
+        writer.writeAttribute("id", media.getId());
+        writer.writeAttribute("type", media.getType());
+
+        addElement(writer, "title", media.getTitle());
+        addElement(writer, "author", media.getAuthor());
+        addElement(writer, "year", String.valueOf(media.getPublicationYear()));
+        addElement(writer, "description", media.getDescription());
+        addElement(writer, "accessCount", String.valueOf(media.getAccessCount()));
+
+        Set<Subject> subjects = media.getSubjectsView();
+        newLine(writer, 2);
+        if (subjects.isEmpty()) {
+            writer.writeEmptyElement("subjects");
+        } else {
+            writer.writeStartElement("subjects");
+            for (Subject subject : subjects) {
+                newLine(writer, 3);
+                writer.writeStartElement("subject");
+                writer.writeCharacters(subject.getCode());
+                writer.writeEndElement();
             }
-            mediaElem.appendChild(subjectsElem);
-            root.appendChild(mediaElem);
+            newLine(writer, 2);
+            writer.writeEndElement();
         }
 
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Transformer transformer = tf.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+        newLine(writer, 1);
+        writer.writeEndElement();
+    }
 
-        DOMSource source = new DOMSource(doc);
-        StreamResult result = new StreamResult(new File(filePath));
-        transformer.transform(source, result);
+    private void addElement(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        newLine(writer, 2);
+        if (value == null || value.isEmpty()) {
+            writer.writeEmptyElement(name);
+            return;
+        }
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
     }
 
-    private void addElement(org.w3c.dom.Document doc, Element parent, String name, String value) {
-        Element elem = doc.createElement(name);
-        elem.setTextContent(value);
-        parent.appendChild(elem);
+    // Same two-space indentation as the previous DOM/Transformer output
+    private void newLine(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        writer.writeCharacters("\n");
+        for (int i = 0; i < depth; i++)
+            writer.writeCharacters("  ");
     }
 }
\ No newline at end of file
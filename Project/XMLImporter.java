@@ -0,0 +1,151 @@
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.xml.stream.*;
+
+// Reads back the mediaLibrary documents written by XMLExporter. The file is
+// mapped and cut into runs of whole <media> elements, which are copied and
+// parsed in parallel with StAX. A '<' can only start markup in the exported documents, so cutting
+// at "<media" is safe; the file must be UTF-8 as the exporter writes it.
+class XMLImporter implements Importer {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final byte[] MEDIA_TAG = "<media".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_TAG = "</mediaLibrary".getBytes(StandardCharsets.US_ASCII);
+
+    private ForkJoinPool pool;
+
+    public XMLImporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public XMLImporter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<Media> importMedia(String filePath, MediaLibrary library) throws Exception {
+        ByteBuffer data = Importer.mapFile(filePath);
+        Map<String, Subject> subjects = Importer.subjectsByCode(library);
+        int[] bounds = split(data);
+        List<List<Media>> parsed = Importer.parseOn(pool, () -> IntStream.range(0, bounds.length - 1).parallel()
+                .mapToObj(i -> parse(data, bounds[i], bounds[i + 1], subjects))
+                .collect(Collectors.toList()));
+
+        List<Media> result = new ArrayList<>();
+        for (List<Media> chunk : parsed)
+            result.addAll(chunk);
+        return result;
+    }
+
+    // Offsets of the <media> elements starting each chunk, plus the offset of
+    // the closing </mediaLibrary>
+    private int[] split(ByteBuffer data) {
+        int length = data.limit();
+        int target = length / Importer.chunkCount(length, pool, MIN_CHUNK_BYTES);
+        List<Integer> bounds = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < length; i++) {
+            if (data.get(i) != '<')
+                continue;
+            if (matches(data, i, MEDIA_TAG) && i + MEDIA_TAG.length < length
+                    && isTagEnd(data.get(i + MEDIA_TAG.length))) {
+                if (i >= next) {
+                    bounds.add(i);
+                    next = i + target;
+                }
+            } else if (matches(data, i, END_TAG)) {
+                bounds.add(i);
+                return bounds.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        throw new IllegalArgumentException("Not a media library document: missing </mediaLibrary>");
+    }
+
+    private static boolean matches(ByteBuffer data, int at, byte[] tag) {
+        if (at + tag.length > data.limit())
+            return false;
+        for (int i = 0; i < tag.length; i++)
+            if (data.get(at + i) != tag[i])
+                return false;
+        return true;
+    }
+
+    private static boolean isTagEnd(byte b) {
+        return b == ' ' || b == '>' || b == '/' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private List<Media> parse(ByteBuffer data, int from, int to, Map<String, Subject> subjects) {
+        byte[] chunk = new byte[to - from];
+        data.get(from, chunk);
+        // The run of elements is wrapped so that it parses as a document
+        InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream("<chunk>".getBytes(StandardCharsets.US_ASCII)),
+                new ByteArrayInputStream(chunk),
+                new ByteArrayInputStream("</chunk>".getBytes(StandardCharsets.US_ASCII)))));
+        List<Media> result = new ArrayList<>();
+        try {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in, "UTF-8");
+            String id = null, type = null, title = null, author = null, description = null;
+            int year = 0, accessCount = 0;
+            List<Subject> mediaSubjects = new ArrayList<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "media":
+                            id = reader.getAttributeValue(null, "id");
+                            type = reader.getAttributeValue(null, "type");
+                            title = author = description = null;
+                            year = accessCount = 0;
+                            mediaSubjects.clear();
+                            break;
+                        case "title":
+                            title = reader.getElementText();
+                            break;
+                        case "author":
+                            author = reader.getElementText();
+                            break;
+                        case "year":
+                            year = Integer.parseInt(reader.getElementText().trim());
+                            break;
+                        case "description":
+                            description = reader.getElementText();
+                            break;
+                        case "accessCount":
+                            accessCount = Integer.parseInt(reader.getElementText().trim());
+                            break;
+                        case "subject":
+                            Subject subject = subjects.get(reader.getElementText().trim());
+                            if (subject != null)
+                                mediaSubjects.add(subject);
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("media")) {
+                    if (id == null || type == null)
+                        throw new IllegalArgumentException("Media element without id or type");
+                    Media media = Importer.createMedia(type, id, title != null ? title : "",
+                            author != null ? author : "", year, description != null ? description : "",
+                            accessCount);
+                    for (Subject subject : mediaSubjects)
+                        media.addSubject(subject);
+                    result.add(media);
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed XML: " + e.getMessage(), e);
+        }
+        return result;
+    }
+}